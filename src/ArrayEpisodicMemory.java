@@ -0,0 +1,64 @@
+import java.util.Arrays;
+
+/**
+ * class ArrayEpisodicMemory
+ *
+ * An EpisodicMemory kept in a growable array on the Java heap.  Each
+ * episode takes a single byte when the codes fit (up to 63 actions) and an
+ * int otherwise.
+ */
+public class ArrayEpisodicMemory extends EpisodicMemory {
+
+    private byte[] bytes;  //the codes when they fit in a byte (otherwise null)
+    private int[] ints;    //the codes when they don't (otherwise null)
+    private int size = 0;
+
+    /**
+     * @param numActions  number of actions the agent has
+     */
+    public ArrayEpisodicMemory(int numActions) {
+        this(numActions, 1024);
+    }
+
+    /**
+     * @param numActions  number of actions the agent has
+     * @param capacity    how many episodes to make room for up front
+     */
+    public ArrayEpisodicMemory(int numActions, int capacity) {
+        capacity = Math.max(capacity, 16);
+        if (fitsInByte(numActions)) bytes = new byte[capacity];
+        else ints = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int code(int index) {
+        checkIndex(index);
+        return (bytes != null) ? (bytes[index] & 0xFF) : ints[index];
+    }
+
+    protected void setCode(int index, int code) {
+        checkIndex(index);
+        if (bytes != null) bytes[index] = (byte)code;
+        else ints[index] = code;
+    }
+
+    protected void addCode(int code) {
+        if (bytes != null) {
+            if (size == bytes.length) bytes = Arrays.copyOf(bytes, size * 2);
+            bytes[size] = (byte)code;
+        }
+        else {
+            if (size == ints.length) ints = Arrays.copyOf(ints, size * 2);
+            ints[size] = code;
+        }
+        size++;
+    }
+
+    protected void clearCodes() {
+        size = 0;
+    }
+
+}//class ArrayEpisodicMemory
@@ -0,0 +1,240 @@
+import java.util.Arrays;
+
+/**
+ * class BatchPathEvaluator
+ *
+ * Scores many candidate paths at once the same way as
+ * StateMachine.avgStepsToGoalWithPath.  The paths are merged into a prefix
+ * trie so a prefix shared by several paths is only simulated once (from
+ * every start state).  Start states that end up in the same state are also
+ * merged (with a count of how many there are) since they behave the same
+ * from then on.
+ *
+ * Usage: addPath() each candidate, call evaluate() and then read the results
+ * with getAvgSteps() / reachesGoal().  More paths can be added afterwards
+ * but evaluate() must be called again.
+ */
+public class BatchPathEvaluator {
+
+    private final StateMachine machine;
+    private final int goalState;
+
+    //the trie.  Node 0 is the root (the empty path) and each other node is
+    //the path to its parent plus one action.
+    private int[] firstChild = new int[16];
+    private int[] nextSibling = new int[16];
+    private int[] actionOf = new int[16];
+    private int numNodes = 1;
+
+    //the node where each path ends
+    private int[] pathEnd = new int[16];
+    private int numPaths = 0;
+
+    //the average steps of each node's path (-1 if it doesn't reach the
+    //goal from every state) or null before evaluate()
+    private int[] nodeAvgSteps = null;
+
+    //for each depth of the trie walk: the distinct states the agent could be
+    //in, how many start states are in each one, how many have reached the
+    //goal so far and the sum of their steps
+    private int[][] levelStates = new int[0][];
+    private int[][] levelCounts = new int[0][];
+    private int[] levelSize = new int[0];
+    private long[] levelSum = new long[0];
+    private int[] levelGoals = new int[0];
+    private int[] childAt = new int[0];  //next child to visit at each depth
+
+    //used to merge start states that reach the same state
+    private int[] stamp;
+    private int[] slot;
+    private int round = 0;
+
+    /**
+     * @param machine  the machine the paths are followed in
+     */
+    public BatchPathEvaluator(StateMachine machine) {
+        this.machine = machine;
+        this.goalState = machine.getGoalState();
+        firstChild[0] = -1;
+        nextSibling[0] = -1;
+        actionOf[0] = -1;
+    }
+
+    /**
+     * adds a path to the batch
+     *
+     * @param path  the path's actions
+     * @return the path's index for getAvgSteps and reachesGoal
+     */
+    public int addPath(int[] path) {
+        int node = 0;
+        for(int action : path) {
+            //find the child for this action or make one
+            int child = firstChild[node];
+            while (child != -1 && actionOf[child] != action) {
+                child = nextSibling[child];
+            }
+            if (child == -1) {
+                child = newNode(action);
+                nextSibling[child] = firstChild[node];
+                firstChild[node] = child;
+            }
+            node = child;
+        }
+
+        if (numPaths == pathEnd.length) pathEnd = Arrays.copyOf(pathEnd, numPaths * 2);
+        pathEnd[numPaths] = node;
+        nodeAvgSteps = null;
+        return numPaths++;
+    }//addPath
+
+    /** @return a new trie node (with no children) for a given action */
+    private int newNode(int action) {
+        if (numNodes == actionOf.length) {
+            int size = numNodes * 2;
+            firstChild = Arrays.copyOf(firstChild, size);
+            nextSibling = Arrays.copyOf(nextSibling, size);
+            actionOf = Arrays.copyOf(actionOf, size);
+        }
+        firstChild[numNodes] = -1;
+        nextSibling[numNodes] = -1;
+        actionOf[numNodes] = action;
+        return numNodes++;
+    }
+
+    /** @return how many paths are in the batch */
+    public int size() {
+        return numPaths;
+    }
+
+    /**
+     * follows every path in the batch from every start state.  This walks
+     * the trie depth first so it only needs memory for the current prefix.
+     */
+    public void evaluate() {
+        int numStates = machine.getNumStates();
+        stamp = new int[numStates];
+        slot = new int[numStates];
+        round = 0;
+        nodeAvgSteps = new int[numNodes];
+
+        //at the root the agent could be in any state but the goal
+        ensureDepth(0);
+        int[] states = new int[numStates - 1];
+        int[] counts = new int[numStates - 1];
+        int size = 0;
+        for(int i = 0; i < numStates; ++i) {
+            if (i != goalState) {
+                states[size] = i;
+                counts[size] = 1;
+                size++;
+            }
+        }
+        levelStates[0] = states;
+        levelCounts[0] = counts;
+        levelSize[0] = size;
+        levelSum[0] = 0;
+        levelGoals[0] = 0;
+        nodeAvgSteps[0] = avgSteps(0);
+
+        childAt[0] = firstChild[0];
+        int depth = 0;
+        while (depth >= 0) {
+            int child = childAt[depth];
+            if (child == -1) {
+                depth--;
+                continue;
+            }
+            childAt[depth] = nextSibling[child];
+
+            step(depth, actionOf[child]);
+            nodeAvgSteps[child] = avgSteps(depth + 1);
+
+            depth++;
+            childAt[depth] = firstChild[child];
+        }//while
+    }//evaluate
+
+    /**
+     * applies an action to the states at a given depth to get the states
+     * at the next depth
+     */
+    private void step(int depth, int action) {
+        ensureDepth(depth + 1);
+        int[] states = levelStates[depth];
+        int[] counts = levelCounts[depth];
+        int size = levelSize[depth];
+        if (levelStates[depth + 1] == null || levelStates[depth + 1].length < size) {
+            levelStates[depth + 1] = new int[size];
+            levelCounts[depth + 1] = new int[size];
+        }
+        int[] nextStates = levelStates[depth + 1];
+        int[] nextCounts = levelCounts[depth + 1];
+        int nextSize = 0;
+        long sum = levelSum[depth];
+        int goals = levelGoals[depth];
+
+        round++;
+        for(int i = 0; i < size; ++i) {
+            int dest = machine.next(states[i], action);
+            if (dest == goalState) {
+                //this is step number 'depth' (counting from 0)
+                sum += (long)depth * counts[i];
+                goals += counts[i];
+            }
+            else if (stamp[dest] == round) {
+                nextCounts[slot[dest]] += counts[i];
+            }
+            else {
+                stamp[dest] = round;
+                slot[dest] = nextSize;
+                nextStates[nextSize] = dest;
+                nextCounts[nextSize] = counts[i];
+                nextSize++;
+            }
+        }//for
+
+        levelSize[depth + 1] = nextSize;
+        levelSum[depth + 1] = sum;
+        levelGoals[depth + 1] = goals;
+    }//step
+
+    /** @return the average steps for the path ending at a given depth or -1 */
+    private int avgSteps(int depth) {
+        if (levelSize[depth] > 0) return -1;
+        if (levelGoals[depth] == 0) return 0;
+        return (int)(levelSum[depth] / levelGoals[depth]);
+    }
+
+    /** makes sure the per depth arrays can hold the given depth */
+    private void ensureDepth(int depth) {
+        if (depth < childAt.length) return;
+        int size = Math.max(depth + 1, childAt.length * 2);
+        levelStates = Arrays.copyOf(levelStates, size);
+        levelCounts = Arrays.copyOf(levelCounts, size);
+        levelSize = Arrays.copyOf(levelSize, size);
+        levelSum = Arrays.copyOf(levelSum, size);
+        levelGoals = Arrays.copyOf(levelGoals, size);
+        childAt = Arrays.copyOf(childAt, size);
+    }
+
+    /**
+     * @param path  index of a path (from addPath)
+     * @return how many steps the agent takes to reach the goal with the path
+     *         on average or -1 if it doesn't reach the goal from all states
+     *         (@see StateMachine#avgStepsToGoalWithPath)
+     */
+    public int getAvgSteps(int path) {
+        if (nodeAvgSteps == null) throw new IllegalStateException("evaluate() has not been called");
+        return nodeAvgSteps[pathEnd[path]];
+    }
+
+    /**
+     * @param path  index of a path (from addPath)
+     * @return true if the path reaches the goal from every state
+     */
+    public boolean reachesGoal(int path) {
+        return getAvgSteps(path) >= 0;
+    }
+
+}//class BatchPathEvaluator
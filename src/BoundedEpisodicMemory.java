@@ -0,0 +1,214 @@
+import java.util.Arrays;
+
+/**
+ * class BoundedEpisodicMemory
+ *
+ * An EpisodicMemory that never holds more than a fixed number of episodes so
+ * an agent can run indefinitely.  The codes are kept in a ring buffer
+ * (a byte or an int each, like ArrayEpisodicMemory) and indexes are always
+ * relative to the oldest episode still kept, so code using the memory
+ * doesn't need to know it's bounded.
+ *
+ * When the memory is full it makes room for a whole batch of new episodes at
+ * once, so the indexes that have to be rebuilt after a removal (see
+ * EpisodicMemory.getEpoch) are only rebuilt once per batch.  Which episodes
+ * go is up to the eviction policy:
+ *   OLDEST_FIRST       the oldest ones
+ *   KEEP_AROUND_GOALS  the oldest ones that aren't within policyParam
+ *                      episodes of a goal (then the oldest of the rest)
+ *   KEEP_LAST_GOALS    everything before the last policyParam trips to the
+ *                      goal (or at least the oldest batch)
+ *
+ * Dropping the oldest episodes just moves the start of the ring.  Dropping
+ * episodes from the middle (KEEP_AROUND_GOALS) moves the rest down.
+ */
+public class BoundedEpisodicMemory extends EpisodicMemory {
+
+    public enum EvictionPolicy { OLDEST_FIRST, KEEP_AROUND_GOALS, KEEP_LAST_GOALS }
+
+    //policyParam used when none is given
+    public static final int DEFAULT_GOAL_RADIUS = 10;
+    public static final int DEFAULT_GOALS_KEPT = 5;
+
+    private final int capacity;
+    private final int batchSize;  //how many episodes to make room for at once
+    private final EvictionPolicy policy;
+    private final int policyParam;
+
+    private byte[] bytes;  //the codes when they fit in a byte (otherwise null)
+    private int[] ints;    //the codes when they don't (otherwise null)
+    private int head = 0;  //where the oldest episode is in the ring
+    private int size = 0;
+
+    //reused by evict()
+    private final int[] kept;
+    private final boolean[] remove;
+
+    /**
+     * creates a memory that makes room a quarter of its capacity at a time
+     *
+     * @param numActions  number of actions the agent has
+     * @param capacity    most episodes to keep
+     * @param policy      which episodes to drop when it's full
+     */
+    public BoundedEpisodicMemory(int numActions, int capacity, EvictionPolicy policy) {
+        this(numActions, capacity, Math.max(capacity / 4, 1), policy,
+             (policy == EvictionPolicy.KEEP_LAST_GOALS) ? DEFAULT_GOALS_KEPT : DEFAULT_GOAL_RADIUS);
+    }
+
+    /**
+     * @param numActions   number of actions the agent has
+     * @param capacity     most episodes to keep
+     * @param batchSize    how many episodes to drop at a time (at least)
+     * @param policy       which episodes to drop
+     * @param policyParam  the goal radius for KEEP_AROUND_GOALS or the number
+     *                     of trips to the goal for KEEP_LAST_GOALS
+     */
+    public BoundedEpisodicMemory(int numActions, int capacity, int batchSize,
+                                 EvictionPolicy policy, int policyParam) {
+        if (capacity < 2) throw new IllegalArgumentException("capacity must be at least 2");
+        if (batchSize < 1 || batchSize > capacity) {
+            throw new IllegalArgumentException("batchSize must be between 1 and the capacity");
+        }
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.policy = policy;
+        this.policyParam = policyParam;
+        if (fitsInByte(numActions)) bytes = new byte[capacity];
+        else ints = new int[capacity];
+        kept = new int[capacity];
+        remove = (policy == EvictionPolicy.KEEP_AROUND_GOALS) ? new boolean[capacity] : null;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasRoomFor(int count) {
+        return size + count <= capacity;
+    }
+
+    /** @return where an episode is in the ring */
+    private int slot(int index) {
+        int slot = head + index;
+        return (slot >= capacity) ? slot - capacity : slot;
+    }
+
+    public int code(int index) {
+        checkIndex(index);
+        return rawCode(slot(index));
+    }
+
+    private int rawCode(int slot) {
+        return (bytes != null) ? (bytes[slot] & 0xFF) : ints[slot];
+    }
+
+    private void setRawCode(int slot, int code) {
+        if (bytes != null) bytes[slot] = (byte)code;
+        else ints[slot] = code;
+    }
+
+    protected void setCode(int index, int code) {
+        checkIndex(index);
+        setRawCode(slot(index), code);
+    }
+
+    protected void addCode(int code) {
+        if (size == capacity) evict();
+        setRawCode(slot(size), code);
+        size++;
+    }
+
+    protected void clearCodes() {
+        head = 0;
+        size = 0;
+    }
+
+    /** makes room for at least batchSize new episodes */
+    private void evict() {
+        switch (policy) {
+            case KEEP_AROUND_GOALS:
+                evictAroundGoals();
+                break;
+            case KEEP_LAST_GOALS:
+                dropOldest(Math.max(startOfLastGoals(), batchSize));
+                break;
+            default:
+                dropOldest(batchSize);
+        }
+    }//evict
+
+    /** drops the given number of the oldest episodes */
+    private void dropOldest(int count) {
+        head = slot(count);
+        size -= count;
+        for (int i = 0; i < size; i++) {
+            kept[i] = count + i;
+        }
+        removed(kept, size);
+    }
+
+    /**
+     * @return the index of the first episode after the goal that starts the
+     *         last policyParam trips to the goal (0 if there aren't that many)
+     */
+    private int startOfLastGoals() {
+        int goalsSeen = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (sensorOf(rawCode(slot(i))) != StateMachineAgent.GOAL) continue;
+            if (goalsSeen == policyParam) return i + 1;
+            goalsSeen++;
+        }
+        return 0;
+    }
+
+    /**
+     * drops batchSize episodes, oldest first, skipping any that are within
+     * policyParam episodes of a goal unless there aren't enough others
+     */
+    private void evictAroundGoals() {
+        //protect the episodes near each goal
+        Arrays.fill(remove, 0, size, true);
+        int lastProtected = -1;
+        for (int i = 0; i < size; i++) {
+            if (sensorOf(rawCode(slot(i))) != StateMachineAgent.GOAL) continue;
+            int from = Math.max(Math.max(i - policyParam, 0), lastProtected + 1);
+            int to = Math.min(i + policyParam, size - 1);
+            for (int j = from; j <= to; j++) {
+                remove[j] = false;
+            }
+            lastProtected = Math.max(lastProtected, to);
+        }
+
+        //keep the newest of the unprotected ones beyond the first batch
+        int toRemove = 0;
+        for (int i = 0; i < size; i++) {
+            if (!remove[i]) continue;
+            if (toRemove < batchSize) toRemove++;
+            else remove[i] = false;
+        }
+
+        //not enough?  then the oldest of the protected ones go too
+        for (int i = 0; i < size && toRemove < batchSize; i++) {
+            if (!remove[i]) {
+                remove[i] = true;
+                toRemove++;
+            }
+        }
+
+        //move the kept ones down (never onto one that hasn't moved yet)
+        int numKept = 0;
+        for (int i = 0; i < size; i++) {
+            if (remove[i]) continue;
+            if (numKept != i) setRawCode(slot(numKept), rawCode(slot(i)));
+            kept[numKept++] = i;
+        }
+        size = numKept;
+        removed(kept, numKept);
+    }//evictAroundGoals
+
+}//class BoundedEpisodicMemory
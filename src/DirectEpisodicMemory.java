@@ -0,0 +1,67 @@
+import java.nio.ByteBuffer;
+
+/**
+ * class DirectEpisodicMemory
+ *
+ * An EpisodicMemory kept in a direct (off-heap) buffer so that a very long
+ * memory doesn't add to the garbage collector's work.  Each episode takes a
+ * single byte when the codes fit (up to 63 actions) and four bytes
+ * otherwise.
+ */
+public class DirectEpisodicMemory extends EpisodicMemory {
+
+    private ByteBuffer buffer;
+    private final int width;  //bytes per episode (1 or 4)
+    private int size = 0;
+
+    /**
+     * @param numActions  number of actions the agent has
+     */
+    public DirectEpisodicMemory(int numActions) {
+        this(numActions, 1 << 16);
+    }
+
+    /**
+     * @param numActions  number of actions the agent has
+     * @param capacity    how many episodes to make room for up front
+     */
+    public DirectEpisodicMemory(int numActions, int capacity) {
+        width = fitsInByte(numActions) ? 1 : 4;
+        buffer = ByteBuffer.allocateDirect(Math.max(capacity, 16) * width);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int code(int index) {
+        checkIndex(index);
+        return (width == 1) ? (buffer.get(index) & 0xFF) : buffer.getInt(index * 4);
+    }
+
+    protected void setCode(int index, int code) {
+        checkIndex(index);
+        if (width == 1) buffer.put(index, (byte)code);
+        else buffer.putInt(index * 4, code);
+    }
+
+    protected void addCode(int code) {
+        if ((size + 1) * width > buffer.capacity()) {
+            //move everything to a buffer twice the size
+            ByteBuffer bigger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+            ByteBuffer old = buffer.duplicate();
+            old.position(0);
+            old.limit(size * width);
+            bigger.put(old);
+            buffer = bigger;
+        }
+        if (width == 1) buffer.put(size, (byte)code);
+        else buffer.putInt(size * 4, code);
+        size++;
+    }
+
+    protected void clearCodes() {
+        size = 0;
+    }
+
+}//class DirectEpisodicMemory
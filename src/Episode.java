@@ -5,18 +5,21 @@
  */
 public class Episode { 
 	
-	public char command;     //what the agent did
+	//the command of an episode whose command isn't known
+	public static final int UNKNOWN_COMMAND = -1;
+
+	public int command;      //what the agent did (an action id)
 	public int sensorValue;  //what the agent sensed
 
 	//this is a test comment blah blah
 
-	public Episode(char cmd, int sensor) {
+	public Episode(int cmd, int sensor) {
 		command = cmd;
 		sensorValue = sensor;
 
 	}
 
     public String toString() {
-        return "[Cmd: "+command+"| Sensor: "+sensorValue+"]";
+        return "[Cmd: "+StateMachine.actionName(command)+"| Sensor: "+sensorValue+"]";
     }
 }
@@ -0,0 +1,382 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * class EpisodeLog
+ *
+ * An EpisodicMemory kept in a memory-mapped file so a long run survives a
+ * crash and can be picked up again where it stopped.  Episodes are only
+ * ever appended (the ones after the last commit may still be changed, like
+ * NSMAgent does, but committed ones can't be) and are made durable in
+ * groups by commit(), which also saves where the environment and agent
+ * were at that moment.  Reopening the log gives back exactly the episodes
+ * (and Q values) of the last commit.
+ *
+ * Files (all values big-endian, like StateMachineCorpus):
+ *   name       header:  MAGIC, VERSION, numActions, width, flags (ints),
+ *                       then two commit records (see below), padded to
+ *                       HEADER_BYTES; then the episode codes (see
+ *                       EpisodicMemory), width bytes each
+ *   name.q0    the Q value of each episode (doubles), if FLAG_Q is set
+ *   name.q1    another copy of the Q values
+ *   name.fsm   the state machine, as a one machine StateMachineCorpus
+ * A commit record is: sequence number, numEpisodes (longs), current state
+ * (int), random state of the environment (long), successes, last sensor,
+ * which Q file it goes with (ints) and a CRC32 of all that (long).  The
+ * valid record with the highest sequence number is the last commit.  Only
+ * its first numEpisodes codes (and Q values) are valid so any tool can map
+ * the files and read the columns directly.
+ *
+ * A commit forces the episodes out to disk and then writes its record over
+ * the older of the two, so a crash part way through a commit leaves the
+ * previous one intact.  Q values of old episodes can change at any time, so
+ * they're written to the Q file the last commit doesn't use; a commit
+ * switches to it and then brings the other file up to date with the values
+ * that changed.  commitIfDue() commits once COMMIT_EPISODES changes have
+ * piled up or COMMIT_MILLIS have passed, whichever is first.
+ *
+ * The files start with room for INITIAL_CAPACITY episodes and double when
+ * they're full.  Each time they grow they're mapped again and the old
+ * mappings are only let go of when they're garbage collected (Java can't
+ * unmap a file), so a long run keeps a few old mappings around that
+ * together are smaller than the current one.
+ */
+public class EpisodeLog extends EpisodicMemory {
+
+    public static final int MAGIC = 0x45504C47;  //"EPLG"
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 128;
+    public static final int FLAG_Q = 1;
+
+    //episodes the files have room for at first
+    public static final int INITIAL_CAPACITY = 1 << 18;
+
+    //where the commit records are in the header and where things are in one
+    private static final int[] RECORD_AT = { 32, 80 };
+    private static final int SEQUENCE = 0;
+    private static final int NUM_EPISODES = 8;
+    private static final int STATE = 16;
+    private static final int RANDOM = 20;
+    private static final int SUCCESSES = 28;
+    private static final int LAST_SENSOR = 32;
+    private static final int Q_FILE = 36;
+    private static final int CHECKSUM = 40;
+
+    //how often commitIfDue() commits
+    public static int COMMIT_EPISODES = 4096;
+    public static long COMMIT_MILLIS = 1000;
+
+    private final String filename;
+    private final int numActions;
+    private final int width;  //bytes per episode (1 or 4)
+
+    private RandomAccessFile file;
+    private MappedByteBuffer data;      //the header and the codes
+    private RandomAccessFile[] qFiles;  //null without a Q column
+    private MappedByteBuffer[] qValues;
+    private int capacity;               //episodes the files have room for
+
+    private int size = 0;
+    private long committedEpisodes = 0;
+    private long sequence = 0;          //of the last commit
+    private int recordAt = -1;          //where the last commit's record is
+    private int committedQ = 1;         //which Q file the last commit uses
+
+    //episodes whose Q values changed since the last commit
+    private int[] changedQ = new int[64];
+    private int numChangedQ = 0;
+
+    private int changes = 0;            //since the last commit
+    private long lastCommit = System.currentTimeMillis();
+
+    /** opens the files and maps them */
+    private EpisodeLog(String filename, int numActions, boolean withQ, int capacity) throws IOException {
+        this.filename = filename;
+        this.numActions = numActions;
+        this.width = fitsInByte(numActions) ? 1 : 4;
+        file = new RandomAccessFile(filename, "rw");
+        if (withQ) {
+            qFiles = new RandomAccessFile[] { new RandomAccessFile(filename + ".q0", "rw"),
+                                              new RandomAccessFile(filename + ".q1", "rw") };
+            qValues = new MappedByteBuffer[2];
+        }
+        map(Math.max(capacity, INITIAL_CAPACITY));
+    }
+
+    /**
+     * starts a new log (replacing any that's there) for a run in a given
+     * environment
+     *
+     * @param filename  the log file (name.q0, name.q1 and name.fsm are also created)
+     * @param env       the environment the agent runs in
+     * @param withQ     keep a Q value per episode
+     */
+    public static EpisodeLog create(String filename, StateMachineEnvironment env, boolean withQ) throws IOException {
+        StateMachineCorpus.write(filename + ".fsm", new StateMachine[] { env.getMachine() });
+        new File(filename).delete();
+        if (withQ) {
+            new File(filename + ".q0").delete();
+            new File(filename + ".q1").delete();
+        }
+
+        EpisodeLog log = new EpisodeLog(filename, env.getNumActions(), withQ, 0);
+        log.data.putInt(0, MAGIC);
+        log.data.putInt(4, VERSION);
+        log.data.putInt(8, log.numActions);
+        log.data.putInt(12, log.width);
+        log.data.putInt(16, withQ ? FLAG_Q : 0);
+        log.commit(env.snapshot(), 0, 0);
+        return log;
+    }
+
+    /**
+     * reopens a log with the episodes of its last commit
+     *
+     * @param filename  the log file
+     */
+    public static EpisodeLog open(String filename) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        RandomAccessFile headerFile = new RandomAccessFile(filename, "r");
+        try {
+            if (headerFile.length() < HEADER_BYTES) {
+                throw new IOException(filename + " is not an episode log");
+            }
+            headerFile.readFully(header.array());
+        }
+        finally {
+            headerFile.close();
+        }
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException(filename + " is not an episode log");
+        }
+        int version = header.getInt(4);
+        if (version != VERSION) {
+            throw new IOException(filename + " has unsupported log version " + version);
+        }
+        int numActions = header.getInt(8);
+        int flags = header.getInt(16);
+
+        //the last commit is the valid record with the highest sequence number
+        int at = -1;
+        for (int recAt : RECORD_AT) {
+            if (header.getLong(recAt + CHECKSUM) != checksum(header, recAt)) continue;
+            if (at < 0 || header.getLong(recAt + SEQUENCE) > header.getLong(at + SEQUENCE)) at = recAt;
+        }
+        if (at < 0) throw new IOException(filename + " has no valid commit");
+        long numEpisodes = header.getLong(at + NUM_EPISODES);
+        if (numEpisodes > Integer.MAX_VALUE) {
+            throw new IOException(filename + " has too many episodes");
+        }
+
+        EpisodeLog log = new EpisodeLog(filename, numActions, (flags & FLAG_Q) != 0, (int)numEpisodes);
+        log.size = (int)numEpisodes;
+        log.setNumAdded(numEpisodes);
+        log.committedEpisodes = numEpisodes;
+        log.sequence = header.getLong(at + SEQUENCE);
+        log.recordAt = at;
+        if (log.qValues != null) {
+            //the other Q file may have changed since then so start it over
+            log.committedQ = header.getInt(at + Q_FILE);
+            MappedByteBuffer from = log.qValues[log.committedQ];
+            MappedByteBuffer to = log.qValues[1 - log.committedQ];
+            for (int i = 0; i < log.size; i++) {
+                to.putDouble(i * 8, from.getDouble(i * 8));
+            }
+        }
+        return log;
+    }//open
+
+    /** @return the CRC32 of the commit record at a given place in the header */
+    private static long checksum(ByteBuffer header, int at) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < CHECKSUM; i++) {
+            crc.update(header.get(at + i));
+        }
+        return crc.getValue();
+    }
+
+    /** (re)maps the files with room for a given number of episodes */
+    private void map(int episodes) throws IOException {
+        capacity = episodes;
+        long length = HEADER_BYTES + (long)capacity * width;
+        if (file.length() < length) file.setLength(length);
+        data = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        if (qFiles != null) {
+            long qLength = (long)capacity * 8;
+            for (int q = 0; q < 2; q++) {
+                if (qFiles[q].length() < qLength) qFiles[q].setLength(qLength);
+                qValues[q] = qFiles[q].getChannel().map(FileChannel.MapMode.READ_WRITE, 0, qLength);
+            }
+        }
+    }
+
+    /** @return a new environment on the logged machine, where it was at the last commit */
+    public StateMachineEnvironment createEnvironment() throws IOException {
+        StateMachine machine = new StateMachineCorpus(filename + ".fsm").getMachine(0);
+        return new StateMachineEnvironment(machine, data.getInt(recordAt + STATE), data.getLong(recordAt + RANDOM));
+    }
+
+    /** @return the agent's number of successes at the last commit */
+    public int getSuccesses() {
+        return data.getInt(recordAt + SUCCESSES);
+    }
+
+    /** @return the last thing the agent sensed at the last commit */
+    public int getLastSensor() {
+        return data.getInt(recordAt + LAST_SENSOR);
+    }
+
+    public boolean hasQColumn() {
+        return qValues != null;
+    }
+
+    /** @return the Q file that changes go to */
+    private MappedByteBuffer workingQ() {
+        return qValues[1 - committedQ];
+    }
+
+    /** @return the Q value of the episode at a given index */
+    public double getQ(int index) {
+        checkIndex(index);
+        return workingQ().getDouble(index * 8);
+    }
+
+    /** changes the Q value of the episode at a given index */
+    public void setQ(int index, double q) {
+        checkIndex(index);
+        workingQ().putDouble(index * 8, q);
+        if (index < committedEpisodes) {
+            if (numChangedQ == changedQ.length) changedQ = Arrays.copyOf(changedQ, numChangedQ * 2);
+            changedQ[numChangedQ++] = index;
+        }
+        changes++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int code(int index) {
+        checkIndex(index);
+        int at = HEADER_BYTES + index * width;
+        return (width == 1) ? (data.get(at) & 0xFF) : data.getInt(at);
+    }
+
+    protected void setCode(int index, int code) {
+        checkIndex(index);
+        if (index < committedEpisodes) {
+            throw new IllegalStateException("episode " + index + " has already been committed");
+        }
+        int at = HEADER_BYTES + index * width;
+        if (width == 1) data.put(at, (byte)code);
+        else data.putInt(at, code);
+        changes++;
+    }
+
+    protected void addCode(int code) {
+        if (size == capacity) {
+            //a single mapping can't be bigger than 2GB
+            long bytesPerEpisode = (qValues != null) ? 8 : width;
+            if ((long)capacity * 2 * bytesPerEpisode + HEADER_BYTES > Integer.MAX_VALUE) {
+                throw new IllegalStateException("episode log is full");
+            }
+            try {
+                map(capacity * 2);
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("could not grow " + filename, e);
+            }
+        }
+        size++;
+        setCode(size - 1, code);
+        if (qValues != null) workingQ().putDouble((size - 1) * 8, 0.0);
+    }
+
+    /** only the episodes since the last commit can be cleared */
+    protected void clearCodes() {
+        if (committedEpisodes > 0) {
+            throw new IllegalStateException("a log with committed episodes can't be cleared");
+        }
+        size = 0;
+        changes++;
+    }
+
+    /**
+     * makes everything so far durable and records where the run is
+     *
+     * @param env         the environment's state now
+     * @param successes   the agent's successes so far
+     * @param lastSensor  what the agent sensed last
+     */
+    public void commit(StateMachineEnvironment.Snapshot env, int successes, int lastSensor) {
+        //the episodes first so a record never counts an episode that isn't there
+        data.force();
+        if (qValues != null) workingQ().force();
+
+        //then a new record over the older one
+        int at = (recordAt == RECORD_AT[0]) ? RECORD_AT[1] : RECORD_AT[0];
+        data.putLong(at + SEQUENCE, sequence + 1);
+        data.putLong(at + NUM_EPISODES, size);
+        data.putInt(at + STATE, env.getCurrentState());
+        data.putLong(at + RANDOM, env.getRandomState());
+        data.putInt(at + SUCCESSES, successes);
+        data.putInt(at + LAST_SENSOR, lastSensor);
+        data.putInt(at + Q_FILE, 1 - committedQ);
+        data.putLong(at + CHECKSUM, checksum(data, at));
+        data.force();
+        sequence++;
+        recordAt = at;
+
+        if (qValues != null) {
+            //the Q file the previous commit used takes the changes from now on
+            //so catch it up first
+            MappedByteBuffer from = workingQ();
+            committedQ = 1 - committedQ;
+            MappedByteBuffer to = workingQ();
+            for (int n = 0; n < numChangedQ; n++) {
+                int i = changedQ[n];
+                to.putDouble(i * 8, from.getDouble(i * 8));
+            }
+            for (int i = (int)committedEpisodes; i < size; i++) {
+                to.putDouble(i * 8, from.getDouble(i * 8));
+            }
+            numChangedQ = 0;
+        }
+
+        committedEpisodes = size;
+        changes = 0;
+        lastCommit = System.currentTimeMillis();
+    }//commit
+
+    /** @return true if enough has changed or enough time has passed since the last commit */
+    public boolean isCommitDue() {
+        if (changes == 0) return false;
+        return changes >= COMMIT_EPISODES || System.currentTimeMillis() - lastCommit >= COMMIT_MILLIS;
+    }
+
+    /** commits if it's due (@see isCommitDue) */
+    public void commitIfDue(StateMachineEnvironment.Snapshot env, int successes, int lastSensor) {
+        if (isCommitDue()) commit(env, successes, lastSensor);
+    }
+
+    /** @return how many episodes the last commit made durable */
+    public long getCommittedEpisodes() {
+        return committedEpisodes;
+    }
+
+    /** closes the files.  Anything since the last commit may be lost. */
+    public void close() throws IOException {
+        file.close();
+        if (qFiles != null) {
+            qFiles[0].close();
+            qFiles[1].close();
+        }
+    }
+
+}//class EpisodeLog
@@ -0,0 +1,182 @@
+import java.util.ArrayList;
+
+/**
+ * class EpisodicMemory
+ *
+ * The agent's episodic memory: the list of everything it has done and
+ * sensed, oldest first.  Rather than keeping an Episode object per step
+ * each episode is packed into a single small int code,
+ * (command + 1) << SENSOR_BITS | sensor, so that the unknown command (-1)
+ * packs to 0.  Two episodes are the same exactly when their codes are.
+ * Subclasses decide where the codes are stored.
+ *
+ * Episodes are normally only ever added at the end, but a memory can also
+ * lose episodes (clear() or a BoundedEpisodicMemory making room).  Indexes
+ * over the memory can tell by checking getEpoch() and anything kept in
+ * arrays aligned with the memory can register a Listener.
+ */
+public abstract class EpisodicMemory {
+
+    /**
+     * interface Listener
+     *
+     * notified when episodes are removed from a memory
+     */
+    public interface Listener {
+        /**
+         * @param kept     for each episode that is left (in order) its index
+         *                 before the removal
+         * @param numKept  how many episodes are left
+         */
+        void episodesRemoved(int[] kept, int numKept);
+    }
+
+    //bits of an episode's code used by the sensor value
+    public static final int SENSOR_BITS = 2;
+    private static final int SENSOR_MASK = (1 << SENSOR_BITS) - 1;
+
+    private long numAdded = 0;  //episodes added since creation or clear()
+    private int epoch = 0;      //changes every time episodes are removed
+    private final ArrayList<Listener> listeners = new ArrayList<Listener>();
+
+    /** @return the code for an episode */
+    public static int encode(int command, int sensor) {
+        return ((command + 1) << SENSOR_BITS) | sensor;
+    }
+
+    /** @return the command of an episode's code */
+    public static int commandOf(int code) {
+        return (code >>> SENSOR_BITS) - 1;
+    }
+
+    /** @return the sensor value of an episode's code */
+    public static int sensorOf(int code) {
+        return code & SENSOR_MASK;
+    }
+
+    /** @return true if every code of a machine with this many actions fits in a byte */
+    public static boolean fitsInByte(int numActions) {
+        return encode(numActions - 1, SENSOR_MASK) <= 0xFF;
+    }
+
+    /**
+     * creates an empty memory
+     *
+     * @param numActions  number of actions the agent has
+     * @param offHeap     store the episodes outside of the Java heap
+     */
+    public static EpisodicMemory create(int numActions, boolean offHeap) {
+        if (offHeap) return new DirectEpisodicMemory(numActions);
+        return new ArrayEpisodicMemory(numActions);
+    }
+
+    /**
+     * creates an empty memory that may be bounded
+     *
+     * @param numActions  number of actions the agent has
+     * @param offHeap     store the episodes outside of the Java heap (only
+     *                    used if the memory is unbounded)
+     * @param capacity    most episodes to keep or 0 for no limit
+     * @param policy      which episodes to drop when it's full
+     */
+    public static EpisodicMemory create(int numActions, boolean offHeap, int capacity,
+                                        BoundedEpisodicMemory.EvictionPolicy policy) {
+        if (capacity > 0) return new BoundedEpisodicMemory(numActions, capacity, policy);
+        return create(numActions, offHeap);
+    }
+
+    /** @return how many episodes there are */
+    public abstract int size();
+
+    /** @return the code of the episode at a given index */
+    public abstract int code(int index);
+
+    /** replaces the code of the episode at a given index */
+    protected abstract void setCode(int index, int code);
+
+    /** adds an episode's code to the end of the memory */
+    protected abstract void addCode(int code);
+
+    /** forgets every episode (the subclass's part of clear()) */
+    protected abstract void clearCodes();
+
+    /** forgets every episode */
+    public void clear() {
+        clearCodes();
+        numAdded = 0;
+        removed(new int[0], 0);
+    }
+
+    /**
+     * @return how many episodes have been added since the memory was created
+     *         or cleared (the same as size() unless episodes were removed)
+     */
+    public long getNumAdded() {
+        return numAdded;
+    }
+
+    /** for memories that start out with episodes in them (@see EpisodeLog) */
+    protected void setNumAdded(long numAdded) {
+        this.numAdded = numAdded;
+    }
+
+    /** @return a number that changes every time episodes are removed */
+    public int getEpoch() {
+        return epoch;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /** records that episodes were removed and tells the listeners which are left */
+    protected void removed(int[] kept, int numKept) {
+        epoch++;
+        for (Listener listener : listeners) {
+            listener.episodesRemoved(kept, numKept);
+        }
+    }
+
+    /**
+     * @return true if a given number of episodes can be added without any
+     *         being removed to make room (always true unless the memory is
+     *         bounded)
+     */
+    public boolean hasRoomFor(int count) {
+        return true;
+    }
+
+    /** @return what the agent did in a given episode */
+    public int command(int index) {
+        return commandOf(code(index));
+    }
+
+    /** @return what the agent sensed in a given episode */
+    public int sensor(int index) {
+        return sensorOf(code(index));
+    }
+
+    /** adds a new episode to the end of the memory */
+    public void add(int command, int sensor) {
+        addCode(encode(command, sensor));
+        numAdded++;
+    }
+
+    /** changes what the agent did in a given episode */
+    public void setCommand(int index, int command) {
+        setCode(index, encode(command, sensor(index)));
+    }
+
+    /** @return a copy of a given episode as an Episode object */
+    public Episode get(int index) {
+        return new Episode(command(index), sensor(index));
+    }
+
+    /** checks an index the way ArrayList does */
+    protected void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+
+}//class EpisodicMemory
@@ -0,0 +1,88 @@
+import java.util.Arrays;
+
+/**
+ * class GoalIndex
+ *
+ * The positions of the goal episodes in an EpisodicMemory, in order.  New
+ * episodes are looked at when the index is queried so it only ever scans
+ * each episode once.  Since the positions are sorted, finding the goal
+ * before or after a given episode is a binary search.
+ *
+ * If episodes are removed from the memory (it's cleared or bounded) the
+ * index is rebuilt from what's left.
+ */
+public class GoalIndex {
+
+    private final EpisodicMemory memory;
+    private int processed = 0;  //how many episodes have been looked at
+    private int epoch;          //the memory's epoch when they were
+
+    private int[] goals = new int[16];
+    private int numGoals = 0;
+
+    /**
+     * @param memory  the memory to index
+     */
+    public GoalIndex(EpisodicMemory memory) {
+        this.memory = memory;
+        this.epoch = memory.getEpoch();
+    }
+
+    /** indexes any episodes that have been added to the memory since the last call */
+    public void update() {
+        if (memory.getEpoch() != epoch) {
+            //episodes were removed so start over
+            epoch = memory.getEpoch();
+            processed = 0;
+            numGoals = 0;
+        }
+
+        while (processed < memory.size()) {
+            int pos = processed++;
+            if (memory.sensor(pos) != StateMachineAgent.GOAL) continue;
+
+            if (numGoals == goals.length) goals = Arrays.copyOf(goals, numGoals * 2);
+            goals[numGoals++] = pos;
+        }
+    }//update
+
+    /** @return how many goals are in the memory */
+    public int size() {
+        update();
+        return numGoals;
+    }
+
+    /** @return the index of the n-th goal (oldest first) */
+    public int get(int n) {
+        update();
+        if (n < 0 || n >= numGoals) throw new IndexOutOfBoundsException("goal " + n + " of " + numGoals);
+        return goals[n];
+    }
+
+    /** @return the index of the last goal before a given episode or -1 */
+    public int lastBefore(int index) {
+        update();
+        int n = firstAtOrAfter(index);
+        return (n > 0) ? goals[n - 1] : -1;
+    }
+
+    /** @return the index of the first goal at or after a given episode or -1 */
+    public int nextAtOrAfter(int index) {
+        update();
+        int n = firstAtOrAfter(index);
+        return (n < numGoals) ? goals[n] : -1;
+    }
+
+    /** @return how many of the goals are before a given episode */
+    private int firstAtOrAfter(int index) {
+        int lo = 0;
+        int hi = numGoals;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (goals[mid] < index) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+}//class GoalIndex
@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * class IterativeDeepeningBlindPathSearch
+ *
+ * An iterative deepening A* (IDA*) version of
+ * StateMachine.shortestBlindPathToGoal.  It uses the same
+ * heuristic but only keeps the sets of states along the current path, so
+ * its memory use grows with the length of the path rather than with the
+ * number of nodes searched.
+ *
+ * An optional transposition table with a fixed number of entries can be
+ * used to skip sets of states that were already reached at least as cheaply
+ * during the current iteration.  Entries are identified by a 64-bit
+ * fingerprint of the set rather than the set itself so the table's size
+ * never changes.  (In theory a fingerprint collision could hide a path.)
+ */
+public class IterativeDeepeningBlindPathSearch {
+
+    //bytes used by one transposition table entry
+    private static final int TT_ENTRY_BYTES = 16;
+
+    private final StateMachine machine;
+    private final int numActions;
+    private final int goalState;
+
+    //the set of states (and its size) at each depth of the current path
+    private int[][] levelStates = new int[0][];
+    private int[] levelCount = new int[0];
+    //the next action to try at each depth of the current path
+    private int[] actionAt = new int[0];
+
+    //transposition table (null if not used)
+    private long[] ttKeys;
+    private int[] ttG;
+    private int[] ttIteration;
+    private int iteration = 0;
+
+    /**
+     * @param machine      the machine whose blind path is wanted
+     * @param ttBytes  memory budget for the transposition table (0 for none)
+     */
+    public IterativeDeepeningBlindPathSearch(StateMachine machine, long ttBytes) {
+        this.machine = machine;
+        this.numActions = machine.getNumActions();
+        this.goalState = machine.getGoalState();
+
+        //round the table down to a power of two that fits the budget
+        long entries = ttBytes / TT_ENTRY_BYTES;
+        if (entries > 0) {
+            int size = Integer.highestOneBit((int)Math.min(entries, 1 << 30));
+            ttKeys = new long[size];
+            ttG = new int[size];
+            ttIteration = new int[size];
+        }
+    }
+
+    /**
+     * runs the search
+     *
+     * @return the shortest path that reaches the goal from every state
+     */
+    public int[] search() {
+        int numStates = machine.getNumStates();
+        int[] root = new int[numStates - 1];
+        int rootCount = 0;
+        for(int i = 0; i < numStates; ++i) {
+            if (i != goalState) root[rootCount++] = i;
+        }
+        if (rootCount == 0) return new int[0];
+
+        //paths as long as the greedy path are not worth searching for
+        int[] greedyPath = machine.greedyBlindPathToGoal();
+        int bound = greedyPath.length;
+        ensureDepth(0);
+        levelStates[0] = root;
+        levelCount[0] = rootCount;
+
+        int threshold = machine.maxDistanceToGoal(root, rootCount);
+        while (threshold < bound) {
+            iteration++;
+            int result = searchToThreshold(threshold);
+            if (result < 0) return buildPath(-result);
+            threshold = result;
+        }
+
+        //nothing shorter than the greedy path exists
+        return greedyPath;
+    }//search
+
+    /**
+     * a depth first search of every path whose f value is no more than the
+     * given threshold
+     *
+     * @return the negated length of the path if one reaches the goal from
+     *         all states, otherwise the smallest f value that exceeded the
+     *         threshold
+     */
+    private int searchToThreshold(int threshold) {
+        int nextThreshold = Integer.MAX_VALUE;
+        int depth = 0;
+        actionAt[0] = 0;
+
+        while (depth >= 0) {
+            //backtrack once every action has been tried at this depth
+            if (actionAt[depth] == numActions) {
+                depth--;
+                continue;
+            }
+            int action = actionAt[depth]++;
+
+            //apply the action to every state at this depth
+            ensureDepth(depth + 1);
+            int[] states = levelStates[depth];
+            int count = levelCount[depth];
+            if (levelStates[depth + 1] == null || levelStates[depth + 1].length < count) {
+                levelStates[depth + 1] = new int[count];
+            }
+            int[] next = levelStates[depth + 1];
+            int nextCount = 0;
+            for(int i = 0; i < count; ++i) {
+                int dest = machine.next(states[i], action);
+                if (dest != goalState) next[nextCount++] = dest;
+            }
+
+            //Did we find the shortest path?
+            if (nextCount == 0) return -(depth + 1);
+
+            //sort and drop duplicates so equal sets look the same
+            Arrays.sort(next, 0, nextCount);
+            int unique = 1;
+            for(int i = 1; i < nextCount; ++i) {
+                if (next[unique - 1] != next[i]) next[unique++] = next[i];
+            }
+            levelCount[depth + 1] = unique;
+
+            //an action that changes nothing is never part of a shortest path
+            if (sameStates(states, count, next, unique)) continue;
+
+            int f = depth + 1 + machine.maxDistanceToGoal(next, unique);
+            if (f > threshold) {
+                nextThreshold = Math.min(nextThreshold, f);
+                continue;
+            }
+            if (seenBefore(next, unique, depth + 1)) continue;
+
+            depth++;
+            actionAt[depth] = 0;
+        }//while
+
+        return nextThreshold;
+    }//searchToThreshold
+
+    /**
+     * checks the transposition table for a set of states already reached at
+     * least as cheaply during this iteration and records this one if not
+     */
+    private boolean seenBefore(int[] states, int count, int g) {
+        if (ttKeys == null) return false;
+
+        long key = count;
+        for(int i = 0; i < count; ++i) {
+            key = (key + states[i] + 1) * 0x9E3779B97F4A7C15L;
+        }
+        key ^= (key >>> 32);
+        int slot = (int)(key & (ttKeys.length - 1));
+
+        if (ttIteration[slot] == iteration && ttKeys[slot] == key && ttG[slot] <= g) {
+            return true;
+        }
+        ttKeys[slot] = key;
+        ttG[slot] = g;
+        ttIteration[slot] = iteration;
+        return false;
+    }//seenBefore
+
+    /** @return true if two sorted sets of states are the same */
+    private static boolean sameStates(int[] a, int aCount, int[] b, int bCount) {
+        if (aCount != bCount) return false;
+        for(int i = 0; i < aCount; ++i) {
+            if (a[i] != b[i]) return false;
+        }
+        return true;
+    }
+
+    /** makes sure the per depth arrays can hold the given depth */
+    private void ensureDepth(int depth) {
+        if (depth < actionAt.length) return;
+        int size = Math.max(depth + 1, actionAt.length * 2);
+        levelStates = Arrays.copyOf(levelStates, size);
+        levelCount = Arrays.copyOf(levelCount, size);
+        actionAt = Arrays.copyOf(actionAt, size);
+    }
+
+    /** @return the actions on the current path of a given length */
+    private int[] buildPath(int length) {
+        int[] path = new int[length];
+        for(int i = 0; i < length; ++i) {
+            path[i] = actionAt[i] - 1;  //actionAt is one past the action taken
+        }
+        return path;
+    }
+
+}//class IterativeDeepeningBlindPathSearch
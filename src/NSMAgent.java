@@ -1,9 +1,10 @@
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Random;
-import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * class NSMAgent
@@ -22,44 +23,6 @@ public class NSMAgent extends StateMachineAgent {
      * INNER CLASSES
      * ************************************************************************************
      */
-    /** 
-     * class QEpisode
-     *
-     * This class extends Episode to have a q-value and a reward
-     */
-    public class QEpisode extends Episode {
-        public double qValue = 0.0;
-        public double reward = 0.0;
-
-        public QEpisode(char cmd, int sensor) {
-            super(cmd, sensor);
-        }
-    }//class QEpisode
-    
-    /**
-     * class NBor
-     *
-     * describes a "neighbor", specifically a sequence that matches the current
-     * sequence ending with the last episode (which represents the present
-     * moment) presuming that a specific action will be taken next.
-     */
-    public class NBor implements Comparable<NBor> {
-        int end;  // index of the last episode of the sequence
-        int begin; // index of the first episode of the sequence
-        int len;  //length of the sequence
-
-        public NBor(int initEnd, int initLen) {
-            this.begin = initEnd - initLen;
-            this.end = initEnd;
-            this.len = initLen;
-        }
-
-        /** this allows a collection of NBors to be sorted on length */
-        public int compareTo(NBor other) {
-            return this.len - other.len;
-        }
-    }//class NBor
-    
     /**
      * class NHood
      *
@@ -68,35 +31,140 @@ public class NSMAgent extends StateMachineAgent {
      * match to the current sequene ending with the last episode (which
      * represents the present moment) presuming that a specific action will be
      * taken next.
+     *
+     * Each neighbor is just the index of the last episode of its sequence and
+     * the sequence's length.  They are kept in a min-heap on length (in two
+     * parallel arrays) so the shortest is always on top, ready to be replaced
+     * by a longer one in O(log k).  When lengths are tied the neighbor ending
+     * at the older episode counts as shorter.  A neighborhood can be cleared
+     * and refilled without allocating anything.
+     *
+     * The sum of the neighbors' Q values is kept as neighbors come and go
+     * (and as their Q values change, @see setNewLittleQ) so the
+     * neighborhood's Q value is just an average.
      */
     public class NHood {
-        public final int K_NEAREST = 8;  //max allowed size of neighborhood
-        
-        public char command;           // action associated with this neighborhood
-        public ArrayList<NBor> nbors;  // neigbhors in the hood
+        public final int capacity;     //max allowed size of neighborhood (k)
+
+        public int command;            // action associated with this neighborhood
         public int shortest = 0;       //length of shortest neighbor
 
-        public NHood(char initCmd) {
+        //the neighbors (heap ordered): last episode and length of each
+        private final int[] ends;
+        private final int[] lens;
+        private int size = 0;
+        private double qSum = 0.0;    //sum of the neighbors' Q values
+
+        public NHood(int initCmd, int capacity) {
             this.command = initCmd;
-            nbors = new ArrayList<NBor>();
+            this.capacity = capacity;
+            ends = new int[capacity];
+            lens = new int[capacity];
+        }
+
+        /** removes every neighbor */
+        public void clear() {
+            size = 0;
+            shortest = 0;
+            qSum = 0.0;
+        }
+
+        /** @return how many neighbors there are */
+        public int size() {
+            return size;
+        }
+
+        /** @return the index of the last episode of a neighbor (in no particular order) */
+        public int getEnd(int n) {
+            return ends[n];
+        }
+
+        /** @return the length of a neighbor (in no particular order) */
+        public int getLength(int n) {
+            return lens[n];
+        }
+
+        /** @return true if a neighbor of a given length would get in */
+        public boolean wants(int len) {
+            return (size < capacity) || (shortest <= len);
         }
 
         /** adds a new neighbor to the neighborhood.
          * CAVEAT:  Caller is responsible for checking the neighbor is long
          * enough to belong. */
-        public void addNBor(NBor newGuy) {
-            //if the nhood is full, drop the shorest neighbor to make room
-            while(nbors.size() >= K_NEAREST) {
-                this.nbors.remove(0);
+        public void addNBor(int end, int len) {
+            if (size < capacity) {
+                //add it at the bottom and move it up
+                int n = size++;
+                while (n > 0) {
+                    int parent = (n - 1) >> 1;
+                    if (!less(end, len, ends[parent], lens[parent])) break;
+                    ends[n] = ends[parent];
+                    lens[n] = lens[parent];
+                    n = parent;
+                }
+                ends[n] = end;
+                lens[n] = len;
             }
-
-            this.nbors.add(newGuy);
+            else {
+                //the nhood is full, so it replaces the shortest neighbor
+                qSum -= qValues[ends[0]];
+                siftDown(end, len);
+            }
+            qSum += qValues[end];
 
             //update the shortest
-            Collections.sort(nbors);
-            this.shortest = nbors.get(0).len;
+            this.shortest = lens[0];
         }//addNBor
 
+        /** puts a neighbor on top of the heap and moves it down to where it belongs */
+        private void siftDown(int end, int len) {
+            int n = 0;
+            while (true) {
+                int child = 2 * n + 1;
+                if (child >= size) break;
+                if (child + 1 < size && less(ends[child + 1], lens[child + 1], ends[child], lens[child])) {
+                    child++;
+                }
+                if (!less(ends[child], lens[child], end, len)) break;
+                ends[n] = ends[child];
+                lens[n] = lens[child];
+                n = child;
+            }
+            ends[n] = end;
+            lens[n] = len;
+        }
+
+        /**
+         * adds the neighbors of another neighborhood that are longer than
+         * this one's shortest.  Unlike calling addNBor in the order the
+         * episodes were found, this works in any order.
+         */
+        public void merge(NHood other) {
+            for(int n = 0; n < other.size; ++n) {
+                int end = other.ends[n];
+                int len = other.lens[n];
+                if (size < capacity || less(ends[0], lens[0], end, len)) {
+                    addNBor(end, len);
+                }
+            }
+        }//merge
+
+        /** adds to the Q sum if the episode at a given index is a neighbor */
+        void qChanged(int end, double delta) {
+            for(int n = 0; n < size; ++n) {
+                if (ends[n] == end) {
+                    qSum += delta;
+                    return;
+                }
+            }
+        }
+
+        /** @return true if the first neighbor is shorter than the second */
+        private boolean less(int end1, int len1, int end2, int len2) {
+            return (len1 < len2) || (len1 == len2 && end1 < end2);
+        }
+
     /**
      * calculates a neighborhood's total Q value.  This is the average of the
      * expected future discounted rewards of all the neighbors in the
@@ -106,18 +174,10 @@ public class NSMAgent extends StateMachineAgent {
     double calculateQValue()
     {
         //Don't calculate for empty neighborhoods
-        if (nbors.size() == 0) return 0.0;
-
-        // sum the q-values of each neighbor
-        double total = 0.0;
-        for(NBor nbor : nbors)
-        {
-            QEpisode qep = (QEpisode)episodicMemory.get(nbor.end);
-            total += qep.qValue;
-        }
+        if (size == 0) return 0.0;
 
         // return the average
-        return (total / (double)nbors.size());
+        return (qSum / (double)size);
     }//calculateQValue
 
         
@@ -135,11 +195,31 @@ public class NSMAgent extends StateMachineAgent {
     public static double REWARD_FAIL      = -0.1;
     public static double INIT_RAND_CHANCE =  0.7;
     public static double RAND_DECREASE    =  0.7;
+    public static int    K_NEAREST        =  8;  //default size of a neighborhood
+
+    //search the memory on the fork-join pool by default?  Pieces of the
+    //memory smaller than PARALLEL_SEGMENT episodes are searched by one thread.
+    //(Off by default: on a single core it's about 20% slower than one pass.)
+    public static boolean PARALLEL_SEARCH  = false;
+    public static int     PARALLEL_SEGMENT = 1 << 14;
     
     protected NHood[] nhoods;
-//%%%    protected ArrayList<QEpisode> episodicMemory = new ArrayList<QEpisode>();
+    protected int kNearest = K_NEAREST;  //max allowed size of this agent's neighborhoods
+    protected boolean parallelSearch = PARALLEL_SEARCH;
+    //the Q value and reward of each episode (the episode itself is in
+    //episodicMemory at the same index)
+    protected double[] qValues = new double[1024];
+    protected double[] rewards = new double[1024];
+    protected int numQ = 0;
     protected double randChance = INIT_RAND_CHANCE;  //how frequently the agent
                                                      //make a random move
+    protected int prevSensors = 0; //what was sensed last time
+
+    //for each episode j before suffixEnd: how many episodes ending at j match
+    //the ones ending at suffixEnd (@see updateSuffixMatches)
+    protected int[] suffixMatch = new int[1024];
+    protected int suffixEnd = -1;
+    private int suffixEpoch = 0;
 
     /**
      * ************************************************************************************
@@ -151,58 +231,295 @@ public class NSMAgent extends StateMachineAgent {
 	 * The constructor for the agent simply initializes it's instance variables
 	 */
 	public NSMAgent() {
-        env = new StateMachineEnvironment();
-		alphabet = env.getAlphabet();
-        nhoods = new NHood[alphabet.length];
-        episodicMemory.clear();
+        this(new StateMachineEnvironment());
+	}//NSMAgent ctor
+
+	/**
+	 * Creates an agent that explores a given environment
+	 */
+	public NSMAgent(StateMachineEnvironment environment) {
+        this(environment, null);
 	}//NSMAgent ctor
 
+	/**
+	 * Creates an agent that explores a given environment and keeps its
+	 * episodes (and their Q values, if the log has a Q column) in a log.
+	 * @see StateMachineAgent#StateMachineAgent(StateMachineEnvironment, EpisodeLog)
+	 */
+	public NSMAgent(StateMachineEnvironment environment, EpisodeLog log) {
+        super(environment, log);
+        setKNearest(K_NEAREST);
+        if (resumed) {
+            //pick up where the run left off
+            for(int i = 0; i < episodicMemory.size(); ++i) {
+                addQ();
+                if (log.hasQColumn()) qValues[i] = log.getQ(i);
+            }
+            prevSensors = log.getLastSensor();
+        }
+        else {
+            episodicMemory.clear();
+        }
+
+        //keep the Q columns lined up with the memory when it forgets episodes
+        episodicMemory.addListener(new EpisodicMemory.Listener() {
+            public void episodesRemoved(int[] kept, int numKept) {
+                for (int i = 0; i < numKept; i++) {
+                    qValues[i] = qValues[kept[i]];
+                    rewards[i] = rewards[kept[i]];
+                }
+                numQ = numKept;
+            }
+        });
+	}//NSMAgent ctor
+
+    /**
+     * sets how many neighbors this agent's neighborhoods can hold
+     *
+     * @param k  max allowed size of a neighborhood
+     */
+    public void setKNearest(int k) {
+        if (k < 1) throw new IllegalArgumentException("k must be at least 1");
+        kNearest = k;
+        nhoods = new NHood[numActions];
+        for(int c = 0; c < numActions; ++c) {
+            nhoods[c] = new NHood(c, k);
+        }
+    }
+
+    /**
+     * sets whether this agent searches its memory for neighbors (and
+     * updates suffixMatch) in pieces on the common fork-join pool
+     */
+    public void setParallelSearch(boolean parallel) {
+        parallelSearch = parallel;
+    }
+
+    /** adds a Q value and reward (both 0) for a new episode */
+    protected void addQ() {
+        if (numQ == qValues.length) {
+            qValues = Arrays.copyOf(qValues, numQ * 2);
+            rewards = Arrays.copyOf(rewards, numQ * 2);
+        }
+        qValues[numQ] = 0.0;
+        rewards[numQ] = 0.0;
+        numQ++;
+    }
+
+    /** @return the Q value of the episode at a given index */
+    public double getQ(int epIndex) {
+        return qValues[epIndex];
+    }
+
     /**
      * populateNHoods
      *
      * creates a neighborhood of k-nearest NBors for each action.  The NHoods
      * must be regenerated each time that that a new episode is added to the
      * store.
+     *
+     * A sequence ending at episode i matches the present (the last episode,
+     * with action c) only if episode i has action c and the same sensors as
+     * the last episode, and then its length is one more than the match
+     * between the sequences ending at i-1 and at the episode before the last
+     * one.  Those matches are kept up to date by updateSuffixMatches so this
+     * takes one pass over the memory for all of the actions.
+     *
+     * With parallelSearch on a large memory is split into pieces that are
+     * searched at the same time and their neighborhoods are merged.
      */
     public void populateNHoods() {
-        QEpisode ep = (QEpisode)episodicMemory.get(0);
-
-        //Create a new neighborhood for each command
-        for(int c = 0; c < alphabet.length; ++c)
+        //Empty the neighborhood of each command
+        for(int c = 0; c < numActions; ++c)
         {
-            nhoods[c] = new NHood(alphabet[c]);
-            
-            //temporarily set the to-be-issued command to this value
-            ep.command = alphabet[c];
-
-            //find the kNN 
-            for(int i = 0; i <= episodicMemory.size() - 2; ++i) {
-                int matchLen = matchedMemoryStringLength(i);
-                if ( (matchLen >0) &&
-                    ( (nhoods[c].shortest <= matchLen)
-                      || (nhoods[c].nbors.size() < nhoods[c].K_NEAREST) ) ) {
-                    nhoods[c].addNBor(new NBor(i, matchLen));
-                }
-            }//for
-        }//for
+            nhoods[c].clear();
+        }
+
+        int now = episodicMemory.size() - 1;
+        updateSuffixMatches(now - 1);
+
+        if (parallelSearch && now > 2 * PARALLEL_SEGMENT) {
+            NHood[] found = ForkJoinPool.commonPool().invoke(new NeighborSearch(0, now));
+            for(int c = 0; c < numActions; ++c) {
+                nhoods[c].merge(found[c]);
+            }
+        }
+        else {
+            findNeighbors(0, now, nhoods);
+        }
     }//populateNHoods
 
+    /**
+     * findNeighbors
+     *
+     * finds the neighbors among the episodes in [from, to) for every action
+     * as if it were the action taken now (the last episode) and adds them to
+     * that action's neighborhood.  The memory isn't changed to try each
+     * action: the memory and suffixMatch are only read (suffixMatch must be
+     * up to date for the episode before the last one, @see
+     * updateSuffixMatches), so any number of these can run at the same time
+     * as long as they fill different neighborhoods.
+     *
+     * @param from  first episode to look at
+     * @param to    one past the last episode to look at (at most the last episode)
+     * @param into  the neighborhood of each action
+     */
+    public void findNeighbors(int from, int to, NHood[] into) {
+        int sensorsNow = episodicMemory.sensor(episodicMemory.size() - 1);
+
+        //each episode can only be a neighbor for its own command
+        for(int i = from; i < to; ++i) {
+            int c = episodicMemory.command(i);
+            if (c < 0 || episodicMemory.sensor(i) != sensorsNow) continue;
+
+            int matchLen = 1 + ((i > 0) ? suffixMatch[i - 1] : 0);
+            if (into[c].wants(matchLen)) {
+                into[c].addNBor(i, matchLen);
+            }
+        }//for
+    }//findNeighbors
+
+    /** finds the neighborhoods of a piece of the memory, splitting it up if it's large */
+    private class NeighborSearch extends RecursiveTask<NHood[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        NeighborSearch(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        protected NHood[] compute() {
+            if (to - from <= PARALLEL_SEGMENT) {
+                NHood[] found = new NHood[numActions];
+                for(int c = 0; c < numActions; ++c) {
+                    found[c] = new NHood(c, kNearest);
+                }
+                findNeighbors(from, to, found);
+                return found;
+            }
+
+            int mid = (from + to) >>> 1;
+            NeighborSearch right = new NeighborSearch(mid, to);
+            right.fork();
+            NHood[] found = new NeighborSearch(from, mid).compute();
+            NHood[] rightFound = right.join();
+            for(int c = 0; c < numActions; ++c) {
+                found[c].merge(rightFound[c]);
+            }
+            return found;
+        }
+    }//class NeighborSearch
+
+    /**
+     * updateSuffixMatches
+     *
+     * brings suffixMatch up to date for a new end episode.  Moving the end
+     * forward by one is a single pass: the match at j grows by one from the
+     * match at j-1 if episode j is the same as the new end episode and is 0
+     * otherwise.  If episodes were removed from the memory the matches are
+     * found again from scratch.
+     *
+     * @param end  the episode the sequences are matched against
+     */
+    protected void updateSuffixMatches(int end) {
+        if (suffixMatch.length < end + 1) {
+            suffixMatch = Arrays.copyOf(suffixMatch, Math.max(end + 1, suffixMatch.length * 2));
+        }
+
+        if (episodicMemory.getEpoch() != suffixEpoch || suffixEnd < 0 || suffixEnd > end) {
+            suffixEpoch = episodicMemory.getEpoch();
+            suffixEnd = end;
+            for(int j = 0; j < end; ++j) {
+                int len = 0;
+                while (len <= j && episodicMemory.code(j - len) == episodicMemory.code(end - len)) {
+                    len++;
+                }
+                suffixMatch[j] = len;
+            }
+            return;
+        }
+
+        while (suffixEnd < end) {
+            suffixEnd++;
+            int endCode = episodicMemory.code(suffixEnd);
+            if (parallelSearch && suffixEnd > 2 * PARALLEL_SEGMENT) {
+                ForkJoinPool.commonPool().invoke(new SuffixStep(0, suffixEnd, endCode, 0));
+            }
+            else {
+                stepSuffixMatches(0, suffixEnd, endCode, 0);
+            }
+        }
+    }//updateSuffixMatches
+
+    /**
+     * moves the matches in [from, to) forward to a new end episode
+     *
+     * @param endCode  code of the new end episode
+     * @param before   the old match at from - 1 (0 if from is 0)
+     */
+    private void stepSuffixMatches(int from, int to, int endCode, int before) {
+        //backwards so suffixMatch[j - 1] is still the old value
+        for(int j = to - 1; j > from; --j) {
+            suffixMatch[j] = (episodicMemory.code(j) == endCode) ? 1 + suffixMatch[j - 1] : 0;
+        }
+        suffixMatch[from] = (episodicMemory.code(from) == endCode) ? 1 + before : 0;
+    }
+
+    /**
+     * stepSuffixMatches on the fork-join pool.  Each piece is given the old
+     * match just before it (read before the piece that has it can change it).
+     */
+    private class SuffixStep extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int endCode;
+        private final int before;
+
+        SuffixStep(int from, int to, int endCode, int before) {
+            this.from = from;
+            this.to = to;
+            this.endCode = endCode;
+            this.before = before;
+        }
+
+        protected void compute() {
+            if (to - from <= PARALLEL_SEGMENT) {
+                stepSuffixMatches(from, to, endCode, before);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SuffixStep(from, mid, endCode, before),
+                      new SuffixStep(mid, to, endCode, suffixMatch[mid - 1]));
+        }
+    }//class SuffixStep
+
     /**
      * setNewLittleQ
      *
      * This functions takes an episode and the current utility and updates the episode's
      * expected future discounted reward. 
      *
-     * @param ep A pointer to an episode to update
+     * @param epIndex index of the episode to update
      * @param utility A double that contains the current state's utility used to update
      *              the episodes that voted for the most recent action
      */
-    public void setNewLittleQ(QEpisode ep, double utility)
+    public void setNewLittleQ(int epIndex, double utility)
     {
         // Set the new q value for the episode
         //if(!g_statsMode) printf("Calculating and setting new expected future discounted reward\n");
-        ep.qValue = (1.0 - LEARNING_RATE) * (ep.qValue)
-            + LEARNING_RATE * (ep.reward + DISCOUNT * utility);
+        double oldQ = qValues[epIndex];
+        qValues[epIndex] = (1.0 - LEARNING_RATE) * oldQ
+            + LEARNING_RATE * (rewards[epIndex] + DISCOUNT * utility);
+
+        //the episode can only be a neighbor for its own command
+        int c = episodicMemory.command(epIndex);
+        if (c >= 0) nhoods[c].qChanged(epIndex, qValues[epIndex] - oldQ);
+        storeQ(epIndex);
     }//setNewLittleQ
     
     /**
@@ -214,40 +531,45 @@ public class NSMAgent extends StateMachineAgent {
      * rate. To account for this we will index into the vector of neighborhoods
      * and update the neighborhood relevant to the executed action.
      *
-     * @arg ep A pointer to the episode containing the most recently executed action
+     * @arg epIndex the index of the episode containing the most recently executed action
      */
-    public void updateAllLittleQ(QEpisode ep)
+    public void updateAllLittleQ(int epIndex)
     {
         // Recalculate the Q value of the neighborhood associated with the
         // episode's action
-        NHood nhood = nhoods[ep.command];
+        NHood nhood = nhoods[episodicMemory.command(epIndex)];
         double utility = nhood.calculateQValue();
 
         // Update the q values for each of the voting episodes for the most
         // recent action
-        for(int i = 0; i < nhood.nbors.size(); ++i) {
+        for(int i = 0; i < nhood.size(); ++i) {
             //Update the root episode
-            NBor nbor = nhood.nbors.get(i);
-            QEpisode rootEp = (QEpisode)episodicMemory.get(nbor.end - i);
-            setNewLittleQ(rootEp, utility);
+            int nborEnd = nhood.getEnd(i);
+            setNewLittleQ(nborEnd - i, utility);
             double prevUtility = utility;
 
             //Update all the root's predecessors that participated in the match
-            for(int j = 1; j < nbor.len; ++j)
+            for(int j = 1; j < nhood.getLength(i); ++j)
             {
-                QEpisode prevEp = (QEpisode)episodicMemory.get(episodicMemory.size() - j);
-                setNewLittleQ(prevEp, prevUtility);
-                prevUtility = prevEp.qValue;
+                setNewLittleQ(episodicMemory.size() - j, prevUtility);
+                prevUtility = qValues[episodicMemory.size() - j];
             }
         }//for
 
         // Update the given (most recent) episode's Q value 
-        setNewLittleQ(ep, utility);
+        setNewLittleQ(epIndex, utility);
 
     }//updateAllLittleQ
 
+    /** copies an episode's Q value to the log (if there's a Q column) */
+    protected void storeQ(int epIndex) {
+        if (episodeLog != null && episodeLog.hasQColumn()) {
+            episodeLog.setQ(epIndex, qValues[epIndex]);
+        }
+    }
+
         //%%%DEBUG: REMOVE
-        int lastSuccess = 0;
+        long lastSuccess = 0;
 
 
     /**
@@ -258,13 +580,12 @@ public class NSMAgent extends StateMachineAgent {
      */
     @Override
     public void exploreEnvironment() {
-        int prevSensors = 0; //what was sensed last time
-        
-        while (episodicMemory.size() < MAX_EPISODES) { 
+        while (keepExploring()) { 
             //add an episode to represent the current moment
-            char cmd = alphabet[random.nextInt(alphabet.length)];  //default is random for now
-            QEpisode nowEp = new QEpisode(cmd, prevSensors);
-			episodicMemory.add(nowEp);
+            int cmd = random.nextInt(numActions);  //default is random for now
+            episodicMemory.add(cmd, prevSensors);
+            addQ();
+            int now = episodicMemory.size() - 1;
             
             // We can't use NSM until we've found the goal at least once
             if(currentSuccesses > 0) {
@@ -275,32 +596,31 @@ public class NSMAgent extends StateMachineAgent {
                 if (random.nextDouble() >= this.randChance) {
                     double bestQ = nhoods[0].calculateQValue();
                     cmd = nhoods[0].command;
-                    for(NHood nhood : nhoods) {
-                        double qVal = nhood.calculateQValue();
-                        if (nhood.calculateQValue() > bestQ) {
+                    for(int c = 1; c < numActions; ++c) {
+                        double qVal = nhoods[c].calculateQValue();
+                        if (qVal > bestQ) {
                             bestQ = qVal;
-                            cmd = nhood.command;
+                            cmd = nhoods[c].command;
                         }
                     }//for
                 }//if
             }//if
             
             //execute the command
-            nowEp.command = cmd;
-            boolean[] sensors = env.tick(cmd);
-
+            episodicMemory.setCommand(now, cmd);
             //Setup for next iteration
-            prevSensors = encodeSensors(sensors);
-            if (sensors[IS_GOAL]){
+            prevSensors = env.tickEncoded(cmd);
+            if (prevSensors == GOAL){
                 currentSuccesses++;
 
                 //%%%DEBUG: REMOVE
-                System.out.print(episodicMemory.size() - lastSuccess);
+                System.out.print(episodicMemory.getNumAdded() - lastSuccess);
                 System.out.print(",");
-                lastSuccess = episodicMemory.size();
+                lastSuccess = episodicMemory.getNumAdded();
             }
-            
+            checkpoint(false, prevSensors);
         }//while
+        checkpoint(true, prevSensors);
     }//exploreEnvironment
 
 	/**
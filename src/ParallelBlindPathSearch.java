@@ -0,0 +1,222 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * class ParallelBlindPathSearch
+ *
+ * A hash distributed A* (HDA*) version of
+ * StateMachine.shortestBlindPathToGoal.  Every set of states is
+ * owned by exactly one worker (chosen by its hash) and only that worker
+ * keeps it in its open list and closed set.  Children generated by a worker
+ * are sent to their owner's inbox.  All workers share the length of the
+ * best path found so far (the incumbent) and discard any node that cannot
+ * beat it, so the search ends with the same optimal length as the
+ * sequential search.  The greedy path
+ * (@see StateMachine#greedyBlindPathToGoal) is the initial
+ * incumbent.
+ *
+ * The workers run on a dedicated fork-join pool with one thread per worker.
+ */
+public class ParallelBlindPathSearch {
+
+    private final StateMachine machine;
+    private final int numActions;
+    private final int numWorkers;
+
+    //inbox of nodes sent to each worker
+    private final ArrayList<ConcurrentLinkedQueue<StateMachine.PathNode>> inboxes;
+
+    //nodes that have been generated but not yet expanded or discarded
+    private final AtomicLong outstanding = new AtomicLong();
+
+    //length of the best path found so far (the incumbent)
+    private final AtomicInteger bound = new AtomicInteger();
+    private StateMachine.PathNode bestNode = null;
+
+    //set if a worker dies so the others don't wait forever
+    private volatile boolean aborted = false;
+
+    /**
+     * @param machine         the machine whose blind path is wanted
+     * @param numWorkers  how many worker threads to use
+     */
+    public ParallelBlindPathSearch(StateMachine machine, int numWorkers) {
+        this.machine = machine;
+        this.numActions = machine.getNumActions();
+        this.numWorkers = Math.max(1, numWorkers);
+        inboxes = new ArrayList<ConcurrentLinkedQueue<StateMachine.PathNode>>();
+        for(int i = 0; i < this.numWorkers; ++i) {
+            inboxes.add(new ConcurrentLinkedQueue<StateMachine.PathNode>());
+        }
+    }
+
+    /**
+     * runs the search
+     *
+     * @return the shortest path that reaches the goal from every state
+     */
+    public int[] search() {
+        StateMachine.PathNode root = machine.new PathNode();
+        if (root.allGoal()) return new int[0];
+
+        int[] greedyPath = machine.greedyBlindPathToGoal();
+        bound.set(greedyPath.length);
+        outstanding.set(1);
+        inboxes.get(owner(root)).add(root);
+
+        ForkJoinPool pool = new ForkJoinPool(numWorkers);
+        try {
+            ArrayList<Worker> workers = new ArrayList<Worker>();
+            for(int i = 0; i < numWorkers; ++i) {
+                Worker worker = new Worker(i);
+                workers.add(worker);
+                pool.execute(worker);
+            }
+            for(Worker worker : workers) {
+                worker.join();
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        //nothing shorter than the greedy path exists
+        StateMachine.PathNode best = getBestNode();
+        return (best == null) ? greedyPath : best.getPath();
+    }//search
+
+    /** @return which worker owns a given set of states */
+    private int owner(StateMachine.PathNode node) {
+        int h = node.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % numWorkers;
+    }
+
+    /** records a path that reaches the goal if it beats the incumbent */
+    private synchronized void offer(StateMachine.PathNode goalNode) {
+        if (goalNode.g < bound.get()) {
+            bestNode = goalNode;
+            bound.set(goalNode.g);
+        }
+    }
+
+    private synchronized StateMachine.PathNode getBestNode() {
+        return bestNode;
+    }
+
+    /**
+     * class Worker
+     *
+     * owns one partition of the sets of states along with its own open list
+     * (a bucket queue indexed by f) and closed set
+     */
+    private class Worker extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private final HashMap<StateMachine.PathNode, StateMachine.PathNode> bestNodes
+            = new HashMap<StateMachine.PathNode, StateMachine.PathNode>();
+        private final ArrayList<ArrayDeque<StateMachine.PathNode>> buckets
+            = new ArrayList<ArrayDeque<StateMachine.PathNode>>();
+        private int minF = 0;
+
+        public Worker(int id) {
+            this.id = id;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                run();
+            }
+            catch (RuntimeException e) {
+                aborted = true;
+                throw e;
+            }
+            catch (Error e) {
+                aborted = true;
+                throw e;
+            }
+        }
+
+        /** main loop: keep working until no node is outstanding anywhere */
+        private void run() {
+            ConcurrentLinkedQueue<StateMachine.PathNode> inbox = inboxes.get(id);
+            while (outstanding.get() > 0 && !aborted) {
+                StateMachine.PathNode node;
+                while ((node = inbox.poll()) != null) {
+                    receive(node);
+                }
+
+                StateMachine.PathNode parent = poll();
+                if (parent == null) {
+                    Thread.yield();
+                    continue;
+                }
+
+                //nodes that can't beat the incumbent are just dropped
+                if (parent.getF() < bound.get()) {
+                    expand(parent);
+                }
+                outstanding.decrementAndGet();
+            }//while
+        }//run
+
+        /** adds a node to the open list unless its states were already reached as cheaply */
+        private void receive(StateMachine.PathNode node) {
+            StateMachine.PathNode prev = bestNodes.get(node);
+            if ((prev != null && prev.g <= node.g) || node.getF() >= bound.get()) {
+                outstanding.decrementAndGet();
+                return;
+            }
+            bestNodes.put(node, node);
+            StateMachine.addToBucket(buckets, node);
+            minF = Math.min(minF, node.getF());
+        }
+
+        /** @return the open node with the lowest f or null if there is none */
+        private StateMachine.PathNode poll() {
+            while (minF < buckets.size()) {
+                ArrayDeque<StateMachine.PathNode> bucket = buckets.get(minF);
+                if (bucket.isEmpty()) {
+                    minF++;
+                    continue;
+                }
+
+                //skip nodes that were superseded by a cheaper path to their states
+                StateMachine.PathNode node = bucket.pollLast();
+                if (bestNodes.get(node) == node) return node;
+                outstanding.decrementAndGet();
+            }
+            return null;
+        }
+
+        /** generates the children of a node and sends each to its owner */
+        private void expand(StateMachine.PathNode parent) {
+            for(int c = 0; c < numActions; ++c) {
+                StateMachine.PathNode node = machine.new PathNode(parent, c);
+                if (node.allGoal()) {
+                    offer(node);
+                    continue;
+                }
+                if (node.getF() >= bound.get()) continue;
+
+                outstanding.incrementAndGet();
+                int dest = owner(node);
+                if (dest == id) {
+                    receive(node);
+                }
+                else {
+                    inboxes.get(dest).add(node);
+                }
+            }//for
+        }//expand
+    }//class Worker
+
+}//class ParallelBlindPathSearch
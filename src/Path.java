@@ -1,56 +1,201 @@
-
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Used by the state machine agent to store a sequence of steps in the state
  * machine environment.  This is primarily used to store the best known path
- * from the init state to the goal state.
+ * from the init state to the goal state.  Each step is an action id (see
+ * StateMachine).
+ *
+ * The steps are kept in a growable int array so a path can be refilled and
+ * reused (clear() then add()) without making any garbage.
+ *
+ * A path can also be a view of the commands of a stretch of episodes in an
+ * EpisodicMemory (@see Path(EpisodicMemory, int, int)).  Nothing is copied
+ * unless the path is changed (add or remove), at which point it gets its
+ * own copy of the steps.  If the memory loses episodes (@see
+ * EpisodicMemory#getEpoch) while the path is still a view, reading the path
+ * throws an IllegalStateException.
  */
 
 public class Path {
-    //list of steps taken along the path
-	private ArrayList<Character> path;
+    //list of steps taken along the path (only the first size are used)
+	private int[] path;
+	private int size = 0;
+
+	//when the path is a view: the memory, the index of the first step's
+	//episode and the memory's epoch when the view was made
+	private EpisodicMemory memory = null;
+	private int offset;
+	private int viewEpoch;
 
 	//Debugging Variable
 	private boolean debug = true;
 
 	/**
-	 * initializes a path with an array of character 
+	 * initializes an empty path
+	 */
+	public Path() {
+		path = new int[8];
+	}
+
+	/**
+	 * initializes a path that is a view of the commands of some episodes
+	 *
+	 * @param memory  the memory
+	 * @param offset  index of the first step's episode
+	 * @param length  how many steps there are
+	 */
+	public Path(EpisodicMemory memory, int offset, int length) {
+		path = new int[8];
+		setView(memory, offset, length);
+	}
+
+	/**
+	 * initializes a path with a list of actions
      *
 	 * @param generated
 	 */
-	public Path (ArrayList<Character> generated) {
-		path = new ArrayList<Character>();
+	public Path (ArrayList<Integer> generated) {
+		path = new int[Math.max(generated.size(), 8)];
 		for (int i = 0; i < generated.size(); i++) {
-			path.add(generated.get(i));
+			path[i] = generated.get(i);
 		}
+		size = generated.size();
+	}
+
+	/**
+	 * initializes a path with an array of actions
+     *
+	 * @param actions
+	 */
+	public Path (int[] actions) {
+		path = Arrays.copyOf(actions, Math.max(actions.length, 8));
+		size = actions.length;
 	}
 
     /**
      * creates a copy of this object
      */
 	public Path copy() {
-		ArrayList<Character> createdCopy = new ArrayList<Character>();
-		for (int i = 0; i < path.size(); i++) {
-			createdCopy.add(path.get(i));
-		}
-		return new Path(createdCopy);
+		return new Path(toArray());
 	}
 
 	public int size() {
-		return path.size();
+		return size;
+	}
+
+	public int get(int index) {
+		checkIndex(index);
+		if (memory != null) {
+			checkEpoch();
+			return memory.command(offset + index);
+		}
+		return path[index];
+	}
+
+	/**
+	 * makes this path a view of the commands of some episodes (forgetting
+	 * whatever steps it had)
+	 *
+	 * @param memory  the memory
+	 * @param offset  index of the first step's episode
+	 * @param length  how many steps there are
+	 */
+	public void setView(EpisodicMemory memory, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > memory.size()) {
+			throw new IndexOutOfBoundsException("Offset: " + offset + ", Length: " + length
+			                                    + ", Size: " + memory.size());
+		}
+		this.memory = memory;
+		this.offset = offset;
+		this.viewEpoch = memory.getEpoch();
+		size = length;
+	}
+
+	/** @return true if this path is a view of some episodes */
+	public boolean isView() {
+		return memory != null;
+	}
+
+	/** @return the memory this path is a view of (null if it isn't one) */
+	public EpisodicMemory getMemory() {
+		return memory;
 	}
 
-	public char get(int index) {
-		return path.get(index);
+	/** @return the index of the episode of this view's first step */
+	public int getOffset() {
+		checkEpoch();
+		return offset;
+	}
+
+	private void checkEpoch() {
+		if (memory.getEpoch() != viewEpoch) {
+			throw new IllegalStateException("the path's episodes are no longer in memory");
+		}
+	}
+
+	/** copies the steps of a view into the path itself (copy on write) */
+	private void detach() {
+		if (memory == null) return;
+		checkEpoch();
+		if (path.length < size) path = new int[Math.max(size, 8)];
+		for (int i = 0; i < size; i++) {
+			path[i] = memory.command(offset + i);
+		}
+		memory = null;
+	}
+
+	/** @return the actions as a new array */
+	public int[] toArray() {
+		if (memory != null) {
+			int[] actions = new int[size];
+			for (int i = 0; i < size; i++) {
+				actions[i] = get(i);
+			}
+			return actions;
+		}
+		return Arrays.copyOf(path, size);
+	}
+
+	/**
+	 * @return the array the actions are kept in.  Only the first size() are
+	 *         part of the path and it is only good until the path changes.
+	 *         (A view is copied first.)
+	 */
+	public int[] actions() {
+		detach();
+		return path;
 	}
 
 	public String toString() {
-		String result = "";
-		for (int i = 0; i < path.size(); i++) {
-			result += path.get(i);
+		StringBuilder result = new StringBuilder(size);
+		for (int i = 0; i < size; i++) {
+			result.append(StateMachine.actionName(get(i)));
 		}
-		return result;
+		return result.toString();
+	}
+
+	/** paths are equal when they have the same steps */
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof Path)) return false;
+		Path otherPath = (Path)other;
+		if (otherPath.size != size) return false;
+		for (int i = 0; i < size; i++) {
+			if (get(i) != otherPath.get(i)) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		//same as a List<Integer> of the steps
+		int hash = 1;
+		for (int i = 0; i < size; i++) {
+			hash = 31 * hash + get(i);
+		}
+		return hash;
 	}
 
 	public void printpath() {
@@ -60,10 +205,37 @@ public class Path {
 	}
 
 	public void remove(int index) {
-		path.remove(index);
+		checkIndex(index);
+		detach();
+		System.arraycopy(path, index + 1, path, index, size - index - 1);
+		size--;
 	}
 
-	public void add(int index, char toAdd) {
-		path.add(index, toAdd);
+	public void add(int index, int toAdd) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		detach();
+		if (size == path.length) path = Arrays.copyOf(path, size * 2);
+		System.arraycopy(path, index, path, index + 1, size - index);
+		path[index] = toAdd;
+		size++;
+	}
+
+	/** adds a step to the end of the path */
+	public void add(int toAdd) {
+		add(size, toAdd);
+	}
+
+	/** removes every step (keeping the room for them) */
+	public void clear() {
+		memory = null;
+		size = 0;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
 	}
 }
@@ -0,0 +1,240 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * class SequencesNotPerformed
+ *
+ * Keeps track of which sequences of actions (up to a maximum length) the
+ * agent has never performed so the shortest one (the SUS) can be found
+ * quickly.  Each sequence is coded as a base numActions number with its
+ * first action as the most significant digit, so codes are in the same
+ * order as the sequences would be alphabetically.  For each length there is
+ * a bit per code that is set once the sequence has been performed (or
+ * handed out by removeShortest).  Lengths with more than DENSE_CODES codes
+ * (long sequences of a big alphabet) keep a hash set of the performed codes
+ * instead, since only a tiny fraction of them can ever be performed.
+ *
+ * Each new episode updates every length from a single rolling code of the
+ * last few commands.  The bits for every length are there from the start
+ * (BitSets only grow as far as the highest code that is set) so no length
+ * ever has to be filled in later from whatever is left in the memory.
+ * Codes are longs, so the longest sequence that can be tracked depends on
+ * the number of actions (@see getMaxLength).
+ *
+ * The very first episode (the agent's unknown first command) is never part
+ * of a sequence.  Since a sequence that has been performed stays performed,
+ * nothing is forgotten when episodes are removed from the memory (it's
+ * bounded or cleared): new episodes are found by how many have been added
+ * (EpisodicMemory.getNumAdded) rather than by where they are.  If it was
+ * cleared the rolling code starts over.
+ */
+public class SequencesNotPerformed {
+
+    private final EpisodicMemory memory;
+    private final int numActions;
+    private final int maxLength;
+
+    //lengths with more codes than this keep a hash set of the performed ones
+    public static final long DENSE_CODES = 1L << 24;
+
+    //numActions^length for each length
+    private final long[] numCodes;
+
+    //for each length: which codes have been performed (one of the two is
+    //null) and how many haven't
+    private final BitSet[] performed;
+    private final LongSet[] performedSparse;
+    private final long[] remaining;
+    private final long[] firstClear;  //every code below this one is performed
+
+    private long processed = 0; //how many episodes have been seen
+    private int epoch;          //the memory's epoch when they were
+    private long recent = 0;     //code of the last maxLength commands
+    private int recentCount = 0; //how many commands that code covers
+
+    /**
+     * @param memory      the agent's memory
+     * @param numActions  number of actions the agent has
+     * @param maxLength   longest sequence to keep track of
+     * @throws IllegalArgumentException if the codes of sequences that long
+     *         don't fit in a long
+     */
+    public SequencesNotPerformed(EpisodicMemory memory, int numActions, int maxLength) {
+        this.memory = memory;
+        this.numActions = numActions;
+        this.maxLength = maxLength;
+        this.epoch = memory.getEpoch();
+
+        numCodes = new long[maxLength + 1];
+        numCodes[0] = 1;
+        for (int length = 1; length <= maxLength; length++) {
+            if (numCodes[length - 1] > Long.MAX_VALUE / numActions) {
+                throw new IllegalArgumentException("sequences of " + length + " of "
+                                                   + numActions + " actions can't be tracked");
+            }
+            numCodes[length] = numCodes[length - 1] * numActions;
+        }
+        performed = new BitSet[maxLength + 1];
+        performedSparse = new LongSet[maxLength + 1];
+        remaining = new long[maxLength + 1];
+        firstClear = new long[maxLength + 1];
+        for (int length = 1; length <= maxLength; length++) {
+            if (numCodes[length] <= DENSE_CODES) performed[length] = new BitSet();
+            else performedSparse[length] = new LongSet();
+            remaining[length] = numCodes[length];
+        }
+    }
+
+    /** @return the longest sequences of a given number of actions that can be kept track of */
+    public static int longestTrackable(int numActions) {
+        int length = 0;
+        for (long codes = 1; codes <= Long.MAX_VALUE / numActions; codes *= numActions) {
+            length++;
+        }
+        return length;
+    }
+
+    /** @return the longest sequence that is kept track of */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /** looks at any episodes that have been added to the memory since the last call */
+    public void update() {
+        if (memory.getEpoch() != epoch) {
+            epoch = memory.getEpoch();
+            if (memory.getNumAdded() < processed) {
+                //the memory was cleared
+                processed = 0;
+                recentCount = 0;
+            }
+        }
+        if (maxLength == 0) {
+            processed = memory.getNumAdded();
+            return;
+        }
+
+        //the new episodes are the last ones in the memory
+        long numNew = Math.min(memory.getNumAdded() - processed, memory.size());
+        if (processed + numNew < memory.getNumAdded()) {
+            //some were removed before they were seen
+            recentCount = 0;
+        }
+        processed = memory.getNumAdded() - numNew;
+        for (int pos = memory.size() - (int)numNew; pos < memory.size(); pos++) {
+            if (processed++ == 0) continue;
+
+            recent = (recent % numCodes[maxLength - 1]) * numActions + memory.command(pos);
+            recentCount = Math.min(recentCount + 1, maxLength);
+            for (int length = 1; length <= recentCount; length++) {
+                mark(length, recent % numCodes[length]);
+            }
+        }
+    }//update
+
+    /** records that the sequence with a given code has been performed */
+    private void mark(int length, long code) {
+        if (isPerformed(length, code)) return;
+        if (performed[length] != null) performed[length].set((int)code);
+        else performedSparse[length].add(code);
+        remaining[length]--;
+    }
+
+    private boolean isPerformed(int length, long code) {
+        return (performed[length] != null) ? performed[length].get((int)code)
+                                           : performedSparse[length].contains(code);
+    }
+
+    /** @return the length of the shortest sequence not performed yet or 0 if there are none */
+    public int shortestLength() {
+        update();
+        for (int length = 1; length <= maxLength; length++) {
+            if (remaining[length] > 0) return length;
+        }
+        return 0;
+    }
+
+    /**
+     * finds the shortest sequence that hasn't been performed (the first one
+     * alphabetically if there are several) and marks it as performed
+     *
+     * @return the sequence or null if every sequence has been performed
+     */
+    public Path removeShortest() {
+        return removeShortest(new Path());
+    }
+
+    /**
+     * like removeShortest() but puts the sequence in a given path
+     *
+     * @return the given path or null if every sequence has been performed
+     */
+    public Path removeShortest(Path sequence) {
+        int length = shortestLength();
+        if (length == 0) return null;
+
+        long code = firstClear[length];
+        if (performed[length] != null) {
+            code = performed[length].nextClearBit((int)code);
+        }
+        else {
+            while (performedSparse[length].contains(code)) code++;
+        }
+        mark(length, code);
+        firstClear[length] = code + 1;
+
+        //the first action is the most significant digit
+        sequence.clear();
+        for (int i = 0; i < length; i++) {
+            sequence.add(0, (int)(code % numActions));
+            code /= numActions;
+        }
+        return sequence;
+    }//removeShortest
+
+    /** an open-addressed hash set of (non-negative) longs */
+    private static class LongSet {
+        private static final long EMPTY = -1;
+        private long[] keys = new long[64];
+        private int size = 0;
+
+        LongSet() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        boolean contains(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return true;
+            }
+            return false;
+        }
+
+        /** adds a key that isn't there yet */
+        void add(long key) {
+            if (2 * (size + 1) > keys.length) {
+                long[] old = keys;
+                keys = new long[old.length * 2];
+                Arrays.fill(keys, EMPTY);
+                for (long k : old) {
+                    if (k != EMPTY) put(k);
+                }
+            }
+            put(key);
+            size++;
+        }
+
+        private void put(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY) slot = (slot + 1) & mask;
+            keys[slot] = key;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int)(h >>> 32) ^ (int)h;
+        }
+    }//class LongSet
+
+}//class SequencesNotPerformed
@@ -0,0 +1,1117 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * <!-- class StateMachine -->
+ * 
+ * A state machine that the agent can explore through a
+ * StateMachineEnvironment.  This holds only the machine itself (the
+ * transitions and the shortest paths to the goal) and never changes
+ * once it has been built, so one StateMachine can be shared by any number of
+ * environments, including ones being used on other threads.  The state the
+ * agent is currently in lives in StateMachineEnvironment.
+ *
+ * Actions are integer ids from 0 to getNumActions() - 1.  Only the
+ * transitions that actually change the state are stored (in a compressed
+ * row layout, sorted by action) so machines with large alphabets where most
+ * actions do nothing stay small.  Any action without a stored transition
+ * leaves the agent where it is.  Machines that are small enough also get a
+ * dense transition table so next() is a single array lookup.
+ *
+ * @author Kirkland Spector
+ * @author Chandler Underwood
+ *
+ * based off of code from:
+ * @author Hailee Kenney
+ * @author Preben Ingvaldsen
+ * 
+ * @version February 26 2015
+ *
+ */
+public class StateMachine {
+	
+	// Default sizes for randomly generated machines
+	public static final int DEFAULT_NUM_STATES = 50;
+	public static final int DEFAULT_ALPHABET_SIZE = 3;  //this must be at least 2
+
+	// Machines with more (state, action) pairs than this don't get a dense table
+	public static final int DENSE_TABLE_LIMIT = 1 << 20;
+
+	// Machines with more states (or numStates^2 * numActions) than these
+	// don't get the pair merging blind path (@see #greedyBlindPathToGoal)
+	public static final int PAIR_MERGE_STATE_LIMIT = 1024;
+	public static final long PAIR_MERGE_WORK_LIMIT = 1L << 26;
+
+	// Instance variables
+	private final int numStates;
+	private final int goalState;  //always the last state
+	private final int numActions;
+	private final int[] rowStart;  //edges leaving state i are rowStart[i] to rowStart[i+1]-1
+	private final int[] edgeAction;  //action of each edge (sorted within a row)
+	private final int[] edgeTarget;  //destination of each edge (never the source)
+	private final int[] flatTransition;  //dense table (row-major, numStates x numActions) or null
+	private final int[] distanceToGoal;  //length of the shortest path from each state to goal
+	private final int[] nextAction;  //first action of that path (-1 at goal)
+	
+	//DEBUG
+	private boolean debug = false;
+
+    /** The algorithms that can be used to find a blind path to the goal */
+    public enum BlindPathSolver {
+        ASTAR,           //shortest path, sequential A* (@see #shortestBlindPathToGoal)
+        PARALLEL_ASTAR,  //shortest path, A* spread over all cores
+        IDA_STAR,        //shortest path, iterative deepening A* in bounded memory
+        GREEDY           //fast but not necessarily shortest
+    }
+
+    /** Default memory budget for the IDA* transposition table when picked by blindPathToGoal */
+    public static final long IDA_TABLE_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * StateMachine
+     *
+     * Constructor to build a random machine using the default sizes
+     */
+	public StateMachine() {
+		this(DEFAULT_NUM_STATES, DEFAULT_ALPHABET_SIZE, new Random());
+	}
+
+    /**
+     * Constructor to build a random machine of a given size
+     *
+     * @param numStates  number of states (the last one is the goal)
+     * @param alphaSize  number of actions
+     * @param random     used to generate the machine
+     */
+	public StateMachine(int numStates, int alphaSize, Random random) {
+		this(numStates, alphaSize, alphaSize, random);
+	}
+
+    /**
+     * Constructor to build a random machine of a given size where each state
+     * has at most a given number of transitions to other states (the rest of
+     * the actions are self-loops)
+     *
+     * @param numStates       number of states (the last one is the goal)
+     * @param alphaSize       number of actions
+     * @param maxTransitions  most transitions out of one state (1 to alphaSize)
+     * @param random          used to generate the machine
+     */
+	public StateMachine(int numStates, int alphaSize, int maxTransitions, Random random) {
+		this.numStates = numStates;
+		goalState = numStates - 1;
+		numActions = alphaSize;
+		distanceToGoal = new int[numStates];
+		nextAction = new int[numStates];
+
+		//If there is a state with no path to the goal, we have a bum state
+		//machine. Regenerate and try again
+		int[][] edges = generateStateMachine(maxTransitions, random);
+		while (!findShortestPaths(edges[0], edges[1], edges[2], distanceToGoal, nextAction)) {
+			edges = generateStateMachine(maxTransitions, random);
+		}
+		rowStart = edges[0];
+		edgeAction = edges[1];
+		edgeTarget = edges[2];
+		flatTransition = buildDenseTable();
+
+		if(debug){
+			printStateMachine();
+			System.out.println("Shortest Path: " + pathToString(getShortestPath(0)));
+		}
+	}
+	
+	/**
+	 * A constructor which allows us to hard code state machine transitions
+	 * for testing purposes 
+	 */
+	public StateMachine(int[][] transitions, int alphaSize) {
+		numStates = transitions.length;
+		goalState = numStates - 1;
+		numActions = alphaSize;
+		distanceToGoal = new int[numStates];
+		nextAction = new int[numStates];
+
+		//keep everything but the self-loops
+		rowStart = new int[numStates + 1];
+		for (int i = 0; i < numStates; i++) {
+			rowStart[i + 1] = rowStart[i];
+			for (int j = 0; j < alphaSize; j++) {
+				if (transitions[i][j] != i) rowStart[i + 1]++;
+			}
+		}
+		edgeAction = new int[rowStart[numStates]];
+		edgeTarget = new int[rowStart[numStates]];
+		int e = 0;
+		for (int i = 0; i < numStates; i++) {
+			for (int j = 0; j < alphaSize; j++) {
+				if (transitions[i][j] != i) {
+					edgeAction[e] = j;
+					edgeTarget[e] = transitions[i][j];
+					e++;
+				}
+			}
+		}
+		flatTransition = buildDenseTable();
+		
+		if(debug) {
+			printStateMachine();
+		}
+		
+		if (!findShortestPaths(rowStart, edgeAction, edgeTarget, distanceToGoal, nextAction)) {
+			throw new IllegalArgumentException("some state has no path to the goal");
+		}
+	}
+
+	/**
+	 * A constructor for a state machine whose tables have already been
+	 * calculated (e.g., loaded from a StateMachineCorpus).  The given arrays
+	 * are used as-is, not copied.
+	 *
+	 * @param rowStarts    where each state's edges begin (numStates + 1 entries)
+	 * @param actions      the action of each edge, sorted within each state
+	 * @param targets      the destination of each edge
+	 * @param alphaSize    number of actions
+	 * @param distances    shortest path length from each state to the goal
+	 * @param nextActions  first action of each of those paths
+	 */
+	public StateMachine(int[] rowStarts, int[] actions, int[] targets, int alphaSize,
+	                    int[] distances, int[] nextActions) {
+		numStates = distances.length;
+		goalState = numStates - 1;
+		numActions = alphaSize;
+		rowStart = rowStarts;
+		edgeAction = actions;
+		edgeTarget = targets;
+		distanceToGoal = distances;
+		nextAction = nextActions;
+		flatTransition = buildDenseTable();
+	}
+
+    /**
+     * @return a printable name for an action: a letter for the first 26
+     *         actions and the id in brackets after that
+     */
+    public static String actionName(int action) {
+        if (action >= 0 && action < 26) return String.valueOf((char)('a' + action));
+        return "[" + action + "]";
+    }
+
+    /** @return a path of actions as a printable string (@see #actionName) */
+    public static String pathToString(int[] path) {
+        StringBuilder result = new StringBuilder();
+        for(int action : path) {
+            result.append(actionName(action));
+        }
+        return result.toString();
+    }
+
+    /**
+     * builds the dense transition table from the edges unless the machine is
+     * too big for one
+     *
+     * @return the table or null
+     */
+    private int[] buildDenseTable() {
+        if ((long)numStates * numActions > DENSE_TABLE_LIMIT) return null;
+
+        int[] table = new int[numStates * numActions];
+        for (int i = 0; i < numStates; i++) {
+            Arrays.fill(table, i * numActions, (i + 1) * numActions, i);
+            for (int e = rowStart[i]; e < rowStart[i + 1]; e++) {
+                table[i * numActions + edgeAction[e]] = edgeTarget[e];
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @param state   the current state
+     * @param action  the action taken
+     * @return the state the action leads to
+     */
+    public int next(int state, int action) {
+        if (flatTransition != null) return flatTransition[state * numActions + action];
+
+        //binary search this state's edges for the action
+        int lo = rowStart[state];
+        int hi = rowStart[state + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midAction = edgeAction[mid];
+            if (midAction < action) lo = mid + 1;
+            else if (midAction > action) hi = mid - 1;
+            else return edgeTarget[mid];
+        }
+        return state;  //no transition: a self-loop
+    }//next
+
+
+	/**
+	 * A helper method to generate a random state machine
+	 *
+	 * @param maxTransitions  most transitions out of one state
+	 * @return the new edges: {rowStart, edgeAction, edgeTarget}
+	 */
+	private int[][] generateStateMachine(int maxTransitions, Random random) {
+		
+		//Each state's transitions are stored one after the other, sorted by
+		//action.  Only transitions to another state are stored.
+		int[] rowStart = new int[numStates + 1];
+		int[] edgeAction = new int[numStates * Math.min(maxTransitions, 4)];
+		int[] edgeTarget = new int[edgeAction.length];
+		int numEdges = 0;
+
+		//which actions already have a transition in the current row (by
+		//holding the row number) and the state each one goes to
+		int[] usedInRow = new int[numActions];
+		Arrays.fill(usedInRow, -1);
+		int[] targetOf = new int[numActions];
+		int[] picked = new int[maxTransitions];
+		int charToTransition;
+		
+		//Iterate through each state so we can set the transitions out of
+		//each state in the state machine
+		for (int i = 0; i < numStates; i++) {
+			
+			//Generate a random number of transitions
+            int numTransitions = random.nextInt(maxTransitions) + 1;
+			for (int j = 0; j < numTransitions; j++) {
+				
+				//Randomly generate a character to transition on
+				charToTransition = random.nextInt(numActions);
+				
+				//if there is already a transition for that character, generate a new character to transition on
+				if (usedInRow[charToTransition] == i) {
+					j--;
+					continue;
+				}
+				
+				//Randomly select a state to transition to that is not the
+				//current state, then set the transition from the current state
+				//on the randomly generated character to the randomly generated
+				//state
+				int nextState = random.nextInt(numStates);
+				
+				while(nextState == i) {
+					nextState = random.nextInt(numStates);
+				}
+				
+				usedInRow[charToTransition] = i;
+				targetOf[charToTransition] = nextState;
+				picked[j] = charToTransition;
+			}
+			
+			//All the other actions for the current state are self-loops, which
+			//are not stored
+			Arrays.sort(picked, 0, numTransitions);
+			if (numEdges + numTransitions > edgeAction.length) {
+				int size = Math.max(numEdges + numTransitions, edgeAction.length * 2);
+				edgeAction = Arrays.copyOf(edgeAction, size);
+				edgeTarget = Arrays.copyOf(edgeTarget, size);
+			}
+			for (int j = 0; j < numTransitions; j++) {
+				edgeAction[numEdges] = picked[j];
+				edgeTarget[numEdges] = targetOf[picked[j]];
+				numEdges++;
+			}
+			rowStart[i + 1] = numEdges;
+		}
+
+		return new int[][] {rowStart, Arrays.copyOf(edgeAction, numEdges),
+		                    Arrays.copyOf(edgeTarget, numEdges)};
+	}
+	 /**
+     * A method which iterates through and prints out
+     * the two-dimension array that represents the state machine
+     * (@see StateMachineExporter#writeTable)
+     */
+    public void printStateMachine() {
+        printTo(false, false);
+    }
+
+	 /**
+     * A method which prints a .dot file (Graphviz) for visualizing a state
+     * machine (@see StateMachineExporter#writeDot)
+     */
+    public void printStateMachineGraph() {
+        printTo(true, false);
+    }//printStateMachineGraph
+
+	 /**
+     * prints a .dot file for the state machine with all of each state's
+     * self-loops drawn as one edge (@see StateMachineExporter#writeDot)
+     */
+    public void printCollapsedStateMachineGraph() {
+        printTo(true, true);
+    }
+
+    /** writes the table or the .dot file to System.out */
+    private void printTo(boolean graph, boolean collapseSelfLoops) {
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+            if (graph) StateMachineExporter.writeDot(this, out, collapseSelfLoops);
+            else StateMachineExporter.writeTable(this, out);
+            out.flush();
+        }
+        catch (IOException e) {
+            System.out.println("printStateMachine: Could not write to System.out.");
+        }
+    }
+	
+	/**
+	 * A helper method that finds the length of the shortest path to the goal
+	 * from each state (and the first action of that path) using a breadth
+	 * first search backwards from the goal.  The edges are reversed into the
+	 * same compressed layout so the whole search is O(numStates + edges).
+	 *
+	 * @param rowStart        where each state's edges begin
+	 * @param edgeAction      the action of each edge
+	 * @param edgeTarget      the destination of each edge
+	 * @param distanceToGoal  receives the length of each state's path
+	 * @param nextAction      receives the first action of each state's path
+	 * @return false if some state has no path to the goal
+	 */
+	private boolean findShortestPaths(int[] rowStart, int[] edgeAction, int[] edgeTarget,
+	                                  int[] distanceToGoal, int[] nextAction) {
+		int numEdges = rowStart[numStates];
+
+		//Bucket every transition by its destination state.  Sources are
+		//visited in increasing order so each bucket is sorted by source
+		//state and then by action.
+		int[] revStart = new int[numStates + 1];
+		for (int e = 0; e < numEdges; e++) {
+			int dest = edgeTarget[e];
+			if (dest >= 0) revStart[dest + 1]++;
+		}
+		for (int i = 0; i < numStates; i++) {
+			revStart[i + 1] += revStart[i];
+		}
+		int[] fill = new int[numStates];
+		System.arraycopy(revStart, 0, fill, 0, numStates);
+		int[] revSource = new int[revStart[numStates]];
+		int[] revAction = new int[revStart[numStates]];
+		for (int i = 0; i < numStates; i++) {
+			for (int e = rowStart[i]; e < rowStart[i + 1]; e++) {
+				int dest = edgeTarget[e];
+				if (dest >= 0) {
+					revSource[fill[dest]] = i;
+					revAction[fill[dest]] = edgeAction[e];
+					fill[dest]++;
+				}
+			}
+		}
+
+		for (int i = 0; i < numStates; i++) {
+			distanceToGoal[i] = -1;
+			nextAction[i] = -1;
+		}
+
+		//Create a queue and add the Goal State to the queue
+		int[] queue = new int[numStates];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = goalState;
+		distanceToGoal[goalState] = 0;
+
+		while (head < tail) {
+			//Grab the element at the front of the queue
+			int currState = queue[head++];
+
+			//Every state that reaches the current state in one step and has
+			//no path yet is one step further from the goal
+			for (int e = revStart[currState]; e < revStart[currState + 1]; e++) {
+				int src = revSource[e];
+				if (distanceToGoal[src] != -1) continue;
+
+				distanceToGoal[src] = distanceToGoal[currState] + 1;
+				nextAction[src] = revAction[e];
+				queue[tail++] = src;
+			}
+		}
+
+		//every state was reached iff every state was queued
+		return tail == numStates;
+	}
+
+	/**
+	 * Builds the shortest path from a given state to the goal by following
+	 * the next action table
+	 *
+	 * @param state the state to start from
+	 * @return the path's actions
+	 */
+	public int[] getShortestPath(int state) {
+		int[] path = new int[distanceToGoal[state]];
+		for (int i = 0; i < path.length; i++) {
+			path[i] = nextAction[state];
+			state = next(state, path[i]);
+		}
+		return path;
+	}
+
+    /**
+     * prints the average length of all shortest paths (used for data baseline)
+     */
+    public void printAvgPathLen() {
+        int sum = 0;
+        for(int i = 0; i < numStates-1; ++i)
+        {
+            sum += distanceToGoal[i];
+
+        }
+        System.out.println("average shortest path len: " + sum / (numStates - 1));
+    }
+    
+	/**
+	 * A helper method that prints the shortest path from each state to the goal.
+	 */
+	public void printPaths() {
+		System.out.println("#####Paths: ");
+		for (int i = 0; i < numStates; ++i) {
+			System.out.println("#S" + i + ": " + pathToString(getShortestPath(i)));
+		}
+	}
+	
+	/**
+	 * Calculates which state the agent would be in if it followed a given path
+	 * from a given starting state.
+     *
+     * CAVEAT:  caller is responsible for providing a valid path
+     *
+     * @param begin state the agent starts in
+     * @param path  path the agent follows
+     *
+     * @return the id of the result state or -1 for invalid path
+	 */
+	public int pathResult(int begin, int[] path) {
+        if (path == null) return -1;
+
+        //Step through each step of the path
+        int currState = begin;
+        for(int i = 0; i < path.length; ++i) {
+            if (path[i] < 0 || path[i] >= numActions) return -1;
+            currState = next(currState, path[i]);
+            if (currState == -1) return -1;
+        }//for
+
+        return currState;
+	}//pathResult
+
+    /**
+     * class PathNode
+     *
+     * used to contain info for the short path search.  Each node contains the
+     * set of states the agent could be in having followed the node's path
+     * (from any starting state) as well as 'h' and 'g' values to support A*
+     * searching.  The set is kept canonical: sorted, without duplicates and
+     * without the goal state (which the agent never leaves) so that two paths
+     * reaching the same belief produce equal nodes.  The path itself is
+     * recovered through the parent links.
+     */
+    public class PathNode {
+        public final int[] currStates;
+        public final PathNode parent;
+        public final int action;  //the last step (-1 at root)
+        public final int g;
+        public int h;
+        private final int hash;
+
+        /** default ctor: the agent could be in any state */
+        public PathNode() {
+            currStates = new int[numStates - 1];
+            int count = 0;
+            for(int i = 0; i < numStates; ++i) {
+                if (i != goalState) currStates[count++] = i;
+            }
+            parent = null;
+            action = -1;
+            g = 0;
+            hash = Arrays.hashCode(currStates);
+            updateH();
+        }
+
+        /** child ctor: applies a new action to the parent's states */
+        public PathNode(PathNode parent, int action) {
+            int[] states = parent.currStates;
+            int[] next = new int[states.length];
+            int count = 0;
+            for(int i = 0; i < states.length; ++i) {
+                int dest = next(states[i], action);
+                if (dest != goalState) next[count++] = dest;
+            }
+
+            //sort and drop duplicates
+            Arrays.sort(next, 0, count);
+            int unique = 0;
+            for(int i = 0; i < count; ++i) {
+                if (unique == 0 || next[unique - 1] != next[i]) next[unique++] = next[i];
+            }
+            currStates = (unique == next.length) ? next : Arrays.copyOf(next, unique);
+
+            this.parent = parent;
+            this.action = action;
+            g = parent.g + 1;
+            hash = Arrays.hashCode(currStates);
+            updateH();
+        }
+
+        /** calculate the 'h' (heuristic) value for A* search.  In this case
+         * it's the length of the longest remaining shortest path */
+        public void updateH() {
+            h = maxDistanceToGoal(currStates, currStates.length);
+        }//updateH
+
+        /** the 'f' value for A* search */
+        public int getF() { return h + g; }
+
+        /** @return the actions taken from the root to reach this node */
+        public int[] getPath() {
+            int[] path = new int[g];
+            for(PathNode node = this; node.parent != null; node = node.parent) {
+                path[node.g - 1] = node.action;
+            }
+            return path;
+        }
+
+        /** @return true if the agent would reach the goal from all states with
+          * this node's path
+          */
+        public boolean allGoal() {
+            return currStates.length == 0;
+        }//allGoal
+
+        /** nodes are equal when they describe the same set of states */
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof PathNode)) return false;
+            PathNode node = (PathNode)other;
+            return hash == node.hash && Arrays.equals(currStates, node.currStates);
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+        
+    }//PathNode
+
+    /**
+     * Calculates the shortest path to the goal if the agent has a perfect model
+     * of the environment but does not know what state it has started in.  This
+     * method uses A* search to reduce resource usage.  The open list is a
+     * bucket queue indexed by f (which is always a small integer) and each
+     * distinct set of states is only kept once, with the best g found so far.
+     * The greedy path (@see #greedyBlindPathToGoal) is used as an upper bound
+     * so nodes that can't beat it are never queued.
+     *
+     * CAVEAT: This method is solving an NP-hard probelm and can take a really
+     * long time to execute on larger FSMs.
+     
+     */
+    public int[] shortestBlindPathToGoal() {
+        PathNode pn = new PathNode();
+        if (pn.allGoal()) return new int[0];
+
+        //anything as long as the greedy path is not worth searching for
+        int[] greedyPath = greedyBlindPathToGoal();
+        int bound = greedyPath.length;
+
+        //best node found so far for each set of states (the closed set)
+        HashMap<PathNode, PathNode> bestNodes = new HashMap<PathNode, PathNode>();
+        bestNodes.put(pn, pn);
+
+        //open list: one bucket of nodes per f value
+        ArrayList<ArrayDeque<PathNode>> buckets = new ArrayList<ArrayDeque<PathNode>>();
+        addToBucket(buckets, pn);
+        int minF = pn.getF();
+
+        //Main search loop
+        while(minF < buckets.size()) {
+            ArrayDeque<PathNode> bucket = buckets.get(minF);
+            if (bucket.isEmpty()) {
+                minF++;
+                continue;
+            }
+
+            //skip nodes that were superseded by a cheaper path to their states
+            PathNode parent = bucket.pollLast();
+            if (bestNodes.get(parent) != parent) continue;
+
+            for(int c = 0; c < numActions; ++c) {
+
+                //Create a child node with this action
+                PathNode node = new PathNode(parent, c);
+
+                //Did we find the shortest path?
+                if (node.allGoal()) return node.getPath();
+
+                //Use this node as parent for future searching unless it
+                //can't beat the greedy path or these states have already been
+                //reached at least as cheaply
+                if (node.getF() >= bound) continue;
+                PathNode prev = bestNodes.get(node);
+                if (prev != null && prev.g <= node.g) continue;
+                bestNodes.put(node, node);
+                addToBucket(buckets, node);
+                minF = Math.min(minF, node.getF());
+            }//for
+        }//while
+        
+        //nothing shorter than the greedy path exists
+        return greedyPath;
+    }//shortestBlindPathToGoal
+
+    /**
+     * The heuristic used by all of the blind path searches: the length of
+     * the longest shortest path from a set of states to the goal
+     *
+     * @param states  the states
+     * @param count   how many entries of states to use
+     */
+    public int maxDistanceToGoal(int[] states, int count) {
+        int h = 0;
+        for(int i = 0; i < count; ++i) {
+            h = Math.max(h, distanceToGoal[states[i]]);
+        }
+        return h;
+    }//maxDistanceToGoal
+
+    /**
+     * Calculates the same shortest blind path as shortestBlindPathToGoal but
+     * with iterative deepening A* so memory use stays linear in the length
+     * of the path (@see IterativeDeepeningBlindPathSearch)
+     *
+     * @param tableBytes  memory budget for the transposition table (0 for none)
+     */
+    public int[] shortestBlindPathToGoalIDA(long tableBytes) {
+        return new IterativeDeepeningBlindPathSearch(this, tableBytes).search();
+    }//shortestBlindPathToGoalIDA
+
+    /**
+     * Finds a path that reaches the goal from every state with the given
+     * algorithm
+     *
+     * @param solver  which algorithm to use
+     */
+    public int[] blindPathToGoal(BlindPathSolver solver) {
+        return blindPathToGoal(solver, Runtime.getRuntime().availableProcessors());
+    }//blindPathToGoal
+
+    /**
+     * like blindPathToGoal(BlindPathSolver) but with a given number of
+     * threads for PARALLEL_ASTAR
+     *
+     * @param solver      which algorithm to use
+     * @param numThreads  how many threads the parallel search uses
+     */
+    public int[] blindPathToGoal(BlindPathSolver solver, int numThreads) {
+        return blindPathToGoal(solver, numThreads, IDA_TABLE_BYTES);
+    }//blindPathToGoal
+
+    /**
+     * like blindPathToGoal(BlindPathSolver) but with a given number of
+     * threads for PARALLEL_ASTAR and memory budget for IDA_STAR
+     *
+     * @param solver      which algorithm to use
+     * @param numThreads  how many threads the parallel search uses
+     * @param tableBytes  memory budget for the IDA* transposition table
+     */
+    public int[] blindPathToGoal(BlindPathSolver solver, int numThreads, long tableBytes) {
+        switch (solver) {
+            case PARALLEL_ASTAR:
+                return shortestBlindPathToGoalParallel(numThreads);
+            case IDA_STAR:
+                return shortestBlindPathToGoalIDA(tableBytes);
+            case GREEDY:
+                return greedyBlindPathToGoal();
+            default:
+                return shortestBlindPathToGoal();
+        }
+    }//blindPathToGoal
+
+    /**
+     * Quickly calculates a path that reaches the goal from every state but is
+     * not necessarily the shortest one.  This is Eppstein's greedy pair
+     * merging algorithm for synchronizing words (@see
+     * #pairMergeBlindPathToGoal) or, on machines too big for it, the cheaper
+     * goal merging heuristic (@see #goalMergeBlindPathToGoal).  When both are
+     * run the shorter path is used.
+     *
+     * @return a path that reaches the goal from every state
+     */
+    public int[] greedyBlindPathToGoal() {
+        int[] goalPath = goalMergeBlindPathToGoal();
+        if (numStates > PAIR_MERGE_STATE_LIMIT
+            || (long)numStates * numStates * numActions > PAIR_MERGE_WORK_LIMIT) {
+            return goalPath;
+        }
+        int[] pairPath = pairMergeBlindPathToGoal();
+        return (pairPath.length < goalPath.length) ? pairPath : goalPath;
+    }//greedyBlindPathToGoal
+
+    /**
+     * Eppstein's greedy pair merging.  A backwards breadth first search over
+     * pairs of states finds, for every pair, the shortest word that takes
+     * both states to the same state (and its first action).  Then, until the
+     * states the agent could be in are down to one, the pair of them with
+     * the shortest merging word is picked and that word is applied to all of
+     * them.  The one state left then takes its shortest path to the goal.
+     *
+     * This takes O(numStates^2 * numActions) time and memory for the search
+     * and O(numStates^3) for the merging so it's only meant for small and
+     * medium sized machines.
+     *
+     * @return a path that reaches the goal from every state
+     */
+    public int[] pairMergeBlindPathToGoal() {
+        //for each action, the states that each state is reached from (CSR)
+        int[][] fromStart = new int[numActions][];
+        int[][] fromState = new int[numActions][];
+        for(int action = 0; action < numActions; ++action) {
+            int[] start = new int[numStates + 1];
+            for(int s = 0; s < numStates; ++s) {
+                start[blindNext(s, action) + 1]++;
+            }
+            for(int t = 0; t < numStates; ++t) {
+                start[t + 1] += start[t];
+            }
+            int[] fill = Arrays.copyOf(start, numStates);
+            int[] from = new int[numStates];
+            for(int s = 0; s < numStates; ++s) {
+                from[fill[blindNext(s, action)]++] = s;
+            }
+            fromStart[action] = start;
+            fromState[action] = from;
+        }
+
+        //backwards BFS from the merged pairs.  Pair (a, b) with a < b is
+        //at b * (b - 1) / 2 + a.
+        int numPairs = numStates * (numStates - 1) / 2;
+        int[] pairDist = new int[numPairs];
+        int[] pairAction = new int[numPairs];
+        Arrays.fill(pairDist, -1);
+        int[] queueA = new int[numPairs];
+        int[] queueB = new int[numPairs];
+        int tail = 0;
+
+        //the first numStates steps are the merged pairs (t, t)
+        for(int n = -numStates; n < tail; ++n) {
+            int a = (n < 0) ? n + numStates : queueA[n];
+            int b = (n < 0) ? a : queueB[n];
+            int dist = (n < 0) ? 0 : pairDist[b * (b - 1) / 2 + a];
+            for(int action = 0; action < numActions; ++action) {
+                int[] start = fromStart[action];
+                int[] from = fromState[action];
+                for(int i = start[a]; i < start[a + 1]; ++i) {
+                    for(int j = start[b]; j < start[b + 1]; ++j) {
+                        int x = Math.min(from[i], from[j]);
+                        int y = Math.max(from[i], from[j]);
+                        if (x == y) continue;
+                        int pair = y * (y - 1) / 2 + x;
+                        if (pairDist[pair] >= 0) continue;
+                        pairDist[pair] = dist + 1;
+                        pairAction[pair] = action;
+                        queueA[tail] = x;
+                        queueB[tail] = y;
+                        tail++;
+                    }
+                }
+            }
+        }//for
+
+        //merge the states the agent could be in a pair at a time
+        int[] path = new int[16];
+        int length = 0;
+        int[] mark = new int[numStates];  //round in which a state was last seen
+        int round = 0;
+        int[] currStates = new int[numStates];
+        int count = numStates;
+        for(int i = 0; i < numStates; ++i) {
+            currStates[i] = i;
+        }
+        while (count > 1) {
+            //pick the pair with the shortest merging word
+            int a = -1;
+            int b = -1;
+            int best = Integer.MAX_VALUE;
+            for(int i = 0; i < count; ++i) {
+                for(int j = i + 1; j < count; ++j) {
+                    int x = Math.min(currStates[i], currStates[j]);
+                    int y = Math.max(currStates[i], currStates[j]);
+                    int dist = pairDist[y * (y - 1) / 2 + x];
+                    if (dist >= 0 && dist < best) {
+                        best = dist;
+                        a = x;
+                        b = y;
+                    }
+                }
+            }
+            if (a < 0) return goalMergeBlindPathToGoal();  //some states can't be merged
+
+            //apply its word to all of them
+            while (a != b) {
+                int action = pairAction[b * (b - 1) / 2 + a];
+                if (length == path.length) path = Arrays.copyOf(path, length * 2);
+                path[length++] = action;
+                int x = blindNext(a, action);
+                int y = blindNext(b, action);
+                a = Math.min(x, y);
+                b = Math.max(x, y);
+
+                round++;
+                int remaining = 0;
+                for(int i = 0; i < count; ++i) {
+                    int dest = blindNext(currStates[i], action);
+                    if (mark[dest] != round) {
+                        mark[dest] = round;
+                        currStates[remaining++] = dest;
+                    }
+                }
+                count = remaining;
+            }
+        }//while
+
+        //then the one state that's left goes to the goal
+        for(int state = currStates[0]; state != goalState; ) {
+            int action = nextAction[state];
+            if (length == path.length) path = Arrays.copyOf(path, length * 2);
+            path[length++] = action;
+            state = blindNext(state, action);
+        }
+        return Arrays.copyOf(path, length);
+    }//pairMergeBlindPathToGoal
+
+    /** @return where an action leads as the blind path searches see it (the goal is never left) */
+    private int blindNext(int state, int action) {
+        return (state == goalState) ? goalState : next(state, action);
+    }
+
+    /**
+     * Quickly calculates a path that reaches the goal from every state but is
+     * usually longer than pair merging.  Since the agent never leaves the
+     * goal, merging a state with the goal state is always possible and its
+     * shortest merging word is just the state's shortest path to the goal.
+     * So, until every state is at the goal, the state that is closest to the
+     * goal is picked and its shortest path is applied to all the remaining
+     * states.  No two states other than the goal are ever merged on purpose.
+     *
+     * Each round removes at least one state so this takes polynomial time
+     * (and only O(numStates) memory) even on very large FSMs.
+     *
+     * @return a path that reaches the goal from every state
+     */
+    public int[] goalMergeBlindPathToGoal() {
+        int[] path = new int[16];
+        int length = 0;
+        int[] mark = new int[numStates];  //round in which a state was last seen
+        int round = 0;
+
+        //what state I'd be in if I started at each state and followed the path
+        //so far (duplicates and states at the goal are dropped)
+        int[] currStates = new int[numStates - 1];
+        int count = 0;
+        for(int i = 0; i < numStates; ++i) {
+            if (i != goalState) currStates[count++] = i;
+        }
+
+        while (count > 0) {
+            //pick the state that is closest to the goal
+            int closest = currStates[0];
+            for(int i = 1; i < count; ++i) {
+                if (distanceToGoal[currStates[i]] < distanceToGoal[closest]) {
+                    closest = currStates[i];
+                }
+            }
+
+            //follow its shortest path from all the remaining states
+            for(int steps = distanceToGoal[closest]; steps > 0; --steps) {
+                int action = nextAction[closest];
+                closest = next(closest, action);
+                if (length == path.length) path = Arrays.copyOf(path, length * 2);
+                path[length++] = action;
+
+                round++;
+                int remaining = 0;
+                for(int i = 0; i < count; ++i) {
+                    int dest = next(currStates[i], action);
+                    if (dest != goalState && mark[dest] != round) {
+                        mark[dest] = round;
+                        currStates[remaining++] = dest;
+                    }
+                }
+                count = remaining;
+            }//for
+        }//while
+
+        return Arrays.copyOf(path, length);
+    }//goalMergeBlindPathToGoal
+
+    /**
+     * Calculates the same shortest blind path as shortestBlindPathToGoal but
+     * spreads the search over several threads
+     * (@see ParallelBlindPathSearch)
+     *
+     * @param numThreads  how many worker threads to use
+     */
+    public int[] shortestBlindPathToGoalParallel(int numThreads) {
+        return new ParallelBlindPathSearch(this, numThreads).search();
+    }//shortestBlindPathToGoalParallel
+
+    /** adds a node to the bucket for its f value in a bucket queue */
+    static void addToBucket(ArrayList<ArrayDeque<PathNode>> buckets, PathNode node) {
+        int f = node.getF();
+        while (buckets.size() <= f) {
+            buckets.add(new ArrayDeque<PathNode>());
+        }
+        buckets.get(f).addLast(node);
+    }
+    
+    /**
+     * Calculates how many steps the agent will take to reach the goal from any
+     * state in the FSM given a path that will reach the goal from any state in
+     * the FSM (@see #shortPathToGoal)
+     *
+     * CAVEAT:  User is responsible for providing a valid path
+     *
+     * @param path  the path to evaluate
+     *
+     * @return the average steps or -1 if path doesn't reach goal from all states
+     *
+     */
+    public int avgStepsToGoalWithPath(int[] path) {
+        int sum = 0; //sum of steps to each goal
+        int goalCount = 0;  //how many states we've reached goal from
+
+        //what state I'd be in if I started at each state and followed the path
+        //so far (this has the same use as in shortPathToGoal)
+        int[] currStates = new int[numStates];
+        for(int i = 0; i < numStates; ++i) {
+            currStates[i] = i;
+        }
+
+        //Iterate over each action in the path
+        for(int c = 0; c < path.length; ++c) {
+            int action = path[c];
+
+            //Take the action in each curr state that hasn't reached the goal
+            //yet and see if agent reaches the goal
+            for(int i = 0; i < numStates; ++i) {
+                if (currStates[i] != goalState) {
+                    currStates[i] = next(currStates[i], action);
+                    if (currStates[i] == goalState) {
+                        sum += c;
+                        goalCount++;
+                    }
+                }//if
+            }//for
+        }//for
+
+        //Check for invalid path
+        if (goalCount != numStates - 1) return -1;
+
+        return sum / goalCount;
+    }//avgStepsToGoalWithPath
+
+    /**
+     * Like avgStepsToGoalWithPath but for many paths at once.  Shared
+     * prefixes are only followed once (@see BatchPathEvaluator) so this is
+     * much faster than calling avgStepsToGoalWithPath on each path.
+     *
+     * @param paths  the paths to evaluate
+     *
+     * @return the average steps of each path or -1 for each path that
+     *         doesn't reach the goal from all states
+     */
+    public int[] avgStepsToGoalWithPaths(int[][] paths) {
+        BatchPathEvaluator batch = new BatchPathEvaluator(this);
+        for(int[] path : paths) {
+            batch.addPath(path);
+        }
+        batch.evaluate();
+
+        int[] avgSteps = new int[paths.length];
+        for(int i = 0; i < paths.length; ++i) {
+            avgSteps[i] = batch.getAvgSteps(i);
+        }
+        return avgSteps;
+    }//avgStepsToGoalWithPaths
+    
+	
+	/**
+	 * Materializes the shortest path for every state.  Large
+	 * machines should prefer getShortestPath or getDistanceToGoal.
+	 */
+	public int[][] getPaths() {
+		int[][] paths = new int[numStates][];
+		for (int i = 0; i < numStates; ++i) {
+			paths[i] = getShortestPath(i);
+		}
+		return paths;
+	}
+
+	public int[] getDistanceToGoal() {
+		return distanceToGoal;
+	}
+
+	public int[] getNextAction() {
+		return nextAction;
+	}
+
+	public int getNumActions() {
+		return numActions;
+	}
+
+	/**
+	 * @return the transition table indexed by [state][action].  This is a
+	 *         new dense copy on every call so it should only be used on
+	 *         small machines.
+	 */
+	public int[][] getTransition() {
+		int[][] transition = new int[numStates][numActions];
+		for (int i = 0; i < numStates; i++) {
+			Arrays.fill(transition[i], i);
+			for (int e = rowStart[i]; e < rowStart[i + 1]; e++) {
+				transition[i][edgeAction[e]] = edgeTarget[e];
+			}
+		}
+		return transition;
+	}
+
+	/**
+	 * @return the dense transition table flattened in row-major order or null
+	 *         if the machine is too big to have one (do not modify)
+	 */
+	public int[] getFlatTransition() {
+		return flatTransition;
+	}
+
+	/** @return where each state's edges begin in getEdgeActions() (do not modify) */
+	public int[] getRowStart() {
+		return rowStart;
+	}
+
+	/** @return the action of each stored transition (do not modify) */
+	public int[] getEdgeActions() {
+		return edgeAction;
+	}
+
+	/** @return the destination of each stored transition (do not modify) */
+	public int[] getEdgeTargets() {
+		return edgeTarget;
+	}
+
+	public int getNumStates() {
+		return numStates;
+	}
+
+	public int getGoalState() {
+		return goalState;
+	}
+
+}
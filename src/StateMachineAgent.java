@@ -1,3 +1,4 @@
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -9,13 +10,30 @@ public class StateMachineAgent {
 
 	// Instance variables
 	protected StateMachineEnvironment env;
-	protected char[] alphabet;
-	protected ArrayList<Episode> episodicMemory;
+	protected int numActions;  //actions are ids 0 to numActions - 1
+	protected EpisodicMemory episodicMemory;
+	protected SuffixAutomatonIndex lmsIndex;  //finds the LMS in episodicMemory
+	protected GoalIndex goalIndex;  //where the goals are in episodicMemory
+	protected EpisodeLog episodeLog;  //same as episodicMemory when the run is logged (otherwise null)
+	protected boolean resumed = false;  //true if the run was picked up from a log
     protected int currentSuccesses = 0;
 
     //This will be useful
     public static Random random = new Random();
 
+    //keep the episodic memory outside of the Java heap (@see DirectEpisodicMemory)
+    public static boolean OFF_HEAP_MEMORY = false;
+
+    //most episodes to remember (0 for no limit) and which to forget once
+    //there are that many (@see BoundedEpisodicMemory)
+    public static int MEMORY_CAPACITY = 0;
+    public static BoundedEpisodicMemory.EvictionPolicy EVICTION_POLICY =
+        BoundedEpisodicMemory.EvictionPolicy.OLDEST_FIRST;
+
+    //number of episodes per run, counting any that have been forgotten (0 or
+    //less for no limit, so an agent with a bounded memory can run forever)
+    public static long MAX_EPISODES = 5000;
+
 	//These are used as indexes into the the sensor array
 	public static final int IS_NEW_STATE = 0;
 	public static final int IS_GOAL = 1;
@@ -28,11 +46,17 @@ public class StateMachineAgent {
     /** Number of state machines to test a given constant combo with */
     public static final int NUM_MACHINES = 100;
 
-    /** Number of episodes per run */
-    public static final int MAX_EPISODES = 5000;
+    /** Number of threads used by the parallel blind path search */
+    public static final int SEARCH_THREADS = Runtime.getRuntime().availableProcessors();
 
     //filename to store experimental results
     public static final String OUTPUT_FILE = "AIReport.csv";
+
+    //file holding the fixed set of state machines used by the sweeps
+    public static final String MACHINE_CORPUS = "machines.fsm";
+
+    //machines shared by all runs of a sweep (null means a new random machine each run)
+    private static StateMachine[] machinePool = null;
     
     /**
      * The SUS is the shortest unique sequence that has not been performed yet.
@@ -43,7 +67,7 @@ public class StateMachineAgent {
     //variables related to the SUS
     private double susScore = 0;
     private static final int MAX_SEQUENCE_SIZE = 7; //just picked 7 as a guess
-    private ArrayList<ArrayList<String>> sequencesNotPerformed;
+    private SequencesNotPerformed sequencesNotPerformed;
     private static int SUS_CONSTANT = 10; //will become final after testing to find values
 
     /**
@@ -64,11 +88,21 @@ public class StateMachineAgent {
     //chance that a duplicate cmd is allowed if a random action is necessary
     double DUPLICATE_FORGIVENESS = .25; //25% chance a duplicate is permitted (S.W.A.G.)
 
+	//reusable buffer for the sensors of a whole path
+	private int[] sensorBuffer = new int[MAX_SEQUENCE_SIZE];
+
+	//reusable paths and match info so that exploreEnvironment doesn't make
+	//any garbage once it's warmed up
+	private Path randomPath = new Path();
+	private Path susPath = new Path();
+	private Path lmsPath = new Path();
+	private int[] scoreInfo = new int[2];
+
 	// Turns debug printing on and off
 	boolean debug = true;
 
 	//specify path to take for testing if boolean is true
-	ArrayList<Character> testPath = new ArrayList<Character>(Arrays.asList('b', 'b'));
+	ArrayList<Integer> testPath = new ArrayList<Integer>(Arrays.asList(1, 1));
 	boolean useDefinedPath = false;
 
 	/**
@@ -77,21 +111,53 @@ public class StateMachineAgent {
 	 * 
 	 */
 	public StateMachineAgent() {
-        env = new StateMachineEnvironment();
-		alphabet = env.getAlphabet();
-		episodicMemory = new ArrayList<Episode>();
+        this(new StateMachineEnvironment());
+	}
+
+	/**
+	 * Creates an agent that explores a given environment
+	 *
+	 * @param environment  the environment (it should not be shared with
+	 *                     another agent)
+	 */
+	public StateMachineAgent(StateMachineEnvironment environment) {
+        this(environment, null);
+	}
+
+	/**
+	 * Creates an agent that explores a given environment and keeps its
+	 * episodes in a log.  If the log already has episodes in it the agent
+	 * picks up where the run left off (the environment should then be
+	 * log.createEnvironment()).
+	 *
+	 * @param environment  the environment (it should not be shared with
+	 *                     another agent)
+	 * @param log          the log or null for a run that isn't logged
+	 */
+	public StateMachineAgent(StateMachineEnvironment environment, EpisodeLog log) {
+        env = environment;
+		numActions = env.getNumActions();
+		episodeLog = log;
+		if (log != null) {
+			episodicMemory = log;
+			resumed = log.size() > 0;
+			currentSuccesses = log.getSuccesses();
+		}
+		else {
+			episodicMemory = EpisodicMemory.create(numActions, OFF_HEAP_MEMORY, MEMORY_CAPACITY, EVICTION_POLICY);
+		}
 
 		//prime the epmem with a first episode that is empty
-		episodicMemory.add(new Episode(' ', NO_TRANSITION));//the space cmd means unknown cmd for first memory
-
-        //build the permutations of all sequences (up to max SUS len) 
-        sequencesNotPerformed = new ArrayList<ArrayList<String>>();
-        sequencesNotPerformed.add(0, null);//since a path of size 0 should be skipped (might not be necessary)
-        for(int lengthSize=1; lengthSize<=MAX_SEQUENCE_SIZE; lengthSize++){
-            ArrayList<String> tempList = new ArrayList<String>();
-            fillPermutations(alphabet, lengthSize, tempList);
-            sequencesNotPerformed.add(lengthSize, tempList);
-        }
+		if (!resumed) {
+			episodicMemory.add(Episode.UNKNOWN_COMMAND, NO_TRANSITION);
+		}
+		lmsIndex = new SuffixAutomatonIndex(episodicMemory);
+		goalIndex = new GoalIndex(episodicMemory);
+
+        //keep track of all sequences (up to max SUS len, or as long as can be
+        //tracked with this many actions) not performed yet
+        int susLengthLimit = Math.min(MAX_SEQUENCE_SIZE, SequencesNotPerformed.longestTrackable(numActions));
+        sequencesNotPerformed = new SequencesNotPerformed(episodicMemory, numActions, susLengthLimit);
 	}//StateMachineAgent ctor
 
     /** accessor */
@@ -109,34 +175,57 @@ public class StateMachineAgent {
      * environment giving him full sentient capabilities...
      */
     public void exploreEnvironment() {
-        while (episodicMemory.size() < MAX_EPISODES) { 
+        while (keepExploring()) { 
             //Find sus and lms scores
             determineSusScore();
-            String currentLms = determineLmsScore();
+            Path currentLms = determineLmsScore();
 
-            String pathToAttempt;
+            Path pathToAttempt;
             //pick larger score of the three
             if (RANDOM_SCORE > susScore && RANDOM_SCORE > lmsScore) {
-                pathToAttempt = "" + generateSemiRandomAction();
+                pathToAttempt = semiRandomPath();
             }
             else if (susScore > lmsScore) {
-                pathToAttempt = getSus();
+                pathToAttempt = sequencesNotPerformed.removeShortest(susPath);
             }
             else if (lmsScore > susScore) {
                 pathToAttempt = currentLms;
             }
             else {//if we tied, default to a random to hopefully tweak them
-                pathToAttempt = "" + generateSemiRandomAction();
+                pathToAttempt = semiRandomPath();
             }
 
             //execute "the chosen one"
-            Path finalPath = stringToPath(pathToAttempt);
-            tryPath(finalPath);
+            tryPath(pathToAttempt);
 
-            scanAndRemoveNewSequences(finalPath.size());
+            scanAndRemoveNewSequences(pathToAttempt.size());
+            checkpoint(false, NO_TRANSITION);
         }//while
+        checkpoint(true, NO_TRANSITION);
     }//exploreEnvironment
 
+    /** @return true if the run hasn't had MAX_EPISODES episodes yet (or there's no limit) */
+    protected boolean keepExploring() {
+        return MAX_EPISODES <= 0 || episodicMemory.getNumAdded() < MAX_EPISODES;
+    }
+
+    /**
+     * checkpoint
+     *
+     * commits the episode log (if the run is logged) so the run can be
+     * resumed from here.  Unless forced this only commits every so often
+     * (@see EpisodeLog#commitIfDue).
+     *
+     * @param force       commit now
+     * @param lastSensor  what the agent sensed last (if it's needed to resume)
+     */
+    protected void checkpoint(boolean force, int lastSensor) {
+        if (episodeLog == null) return;
+        if (force || episodeLog.isCommitDue()) {
+            episodeLog.commit(env.snapshot(), currentSuccesses, lastSensor);
+        }
+    }
+
     /**
      * ************************************************************************************
      * METHODS FOR THE SUS
@@ -146,46 +235,15 @@ public class StateMachineAgent {
     /**
      * scanAndRemoveNewSequences
      *
-     * Rips through the memory and finds all unique sequences that have been
-     * performed and not yet removed from sequencesNotPerformed. Should be
-     * called after every command the agent makes
+     * Marks every sequence that has been performed since the last call as
+     * no longer unperformed (see SequencesNotPerformed). Should be called
+     * after every command the agent makes
      *
      * @param numCmdsExecuted the number of cmds commited by the last try path
+     *                        (not needed anymore, the tracker knows what's new)
      */
     public void scanAndRemoveNewSequences(int numCmdsExecuted){
-        //iterate through all sizes of possible paths, if no unique paths exist, move on
-        //otherwise scan mem and remove matching sequences from SNP arraylist
-        for (int i=1; i<=MAX_SEQUENCE_SIZE; i++){
-            //if there are no paths of this length, move on
-            if (sequencesNotPerformed.get(i).isEmpty()){
-                continue;
-            }
-
-            //make sure current path size is smaller than mem size, if not break out
-            if (i > episodicMemory.size()-1) { //sub 1 because first " " command doesn't count
-                break;
-            }
-
-            //otherwise we'll go through recently changed memory of this size and check against SNP
-            //iterate over all commands - i to stop fence posting error
-            //determine starting position
-            int startPosition = episodicMemory.size() - 1;
-            int changedMemory = MAX_SEQUENCE_SIZE + numCmdsExecuted;
-            while (startPosition > 1 && startPosition >= episodicMemory.size() - changedMemory) {
-                startPosition--;
-            }
-            for (int j=startPosition; j<=episodicMemory.size()-i; j++){
-                String currentPath = ""; //path in memory to test
-                for (int k=0; k<i; k++){ //iterate the size of the path through
-                    currentPath += episodicMemory.get(j+k).command;
-                }
-
-                //test if this path is in SNP and remove if so, huzzah!
-                if (sequencesNotPerformed.get(i).contains(currentPath)){
-                    sequencesNotPerformed.get(i).remove(currentPath);
-                }
-            }//for
-        }//for
+        sequencesNotPerformed.update();
     }//scanAndRemoveNewSequences
 
     /**
@@ -194,15 +252,10 @@ public class StateMachineAgent {
      * Returns the sus by fishing through the sequencesNotPerformed and getting
      * a path of the smallest length
      *
-     * @return a string if a sus is found or null if none found
+     * @return a path if a sus is found or null if none found
      */
-    public String getSus() {
-        for (int i=1; i<sequencesNotPerformed.size(); i++) { //go through path sizes
-            if (!sequencesNotPerformed.get(i).isEmpty()) { //if not empty, there's a victim inside
-                return sequencesNotPerformed.get(i).remove(0);//returns and removes sus
-            }
-        }
-        return null;
+    public Path getSus() {
+        return sequencesNotPerformed.removeShortest();//returns and removes sus
     }
 
     /**
@@ -215,12 +268,7 @@ public class StateMachineAgent {
         int susLength=0;
 
         //get shortest length for sus
-        for (int i=1; i<sequencesNotPerformed.size(); i++){
-            if (!sequencesNotPerformed.get(i).isEmpty()) {
-                susLength = i;
-                break;
-            }
-        }
+        susLength = sequencesNotPerformed.shortestLength();
 
         //if the length is still 0 the sus has dried up, set to 0
         if (susLength == 0){
@@ -237,50 +285,6 @@ public class StateMachineAgent {
         susScore = (1 / sum) * SUS_CONSTANT;
     }//determineSusScore
 
-    /**
-     * fillPermutations
-     *
-     * driver method to generate all strings for the sequencesNotPerformed
-     * arraylist
-     *
-     * @param set set of chars that can be used to build strings (alphabet)
-     * @param k length of string to build up to
-     * @param permutations place to store the strings
-     */
-    public void fillPermutations(char set[], int k, ArrayList<String> permutations){
-        int n = set.length;
-        buildPermutations(set, "", n, k, permutations);
-    }
-
-    /**
-     * buildPermutations
-     *
-     * helper method to actually build all the permutations of the strings and
-     * store them in the arraylist
-     *
-     * @param set set of chars that can be used to build strings (alphabet)
-     * @param prefix used to slowly build up different permutations
-     * @param n length of set (sort of clumsy way to do it right now)
-     * @param k length of string to build up to
-     * @param permutations place to store the strings
-     */
-    public void buildPermutations(char set[], String prefix, int n, int k, ArrayList<String> permutations) {
-        // Base case: k is 0
-        if (k == 0) {
-            permutations.add(prefix);
-            return;
-        }
-
-        // One by one add all characters from set and recursively
-        // call for k equals to k-1
-        for (int i = 0; i < n; ++i) {
-            // Next character of input added
-            String newPrefix = prefix + set[i];
-            // k is decreased, because we have added a new character
-            buildPermutations(set, newPrefix, n, k - 1, permutations);
-        }
-    }//buildPermutations
-
     /**
      * ************************************************************************************
      * METHODS FOR THE LMS
@@ -292,14 +296,19 @@ public class StateMachineAgent {
      *
      * Finds the ending index of the longest substring in episodic memory before
      * the previous goal matching the final string of actions the agent has
-     * taken and the length of the matched string
-     *
-     * @return The ending index of the longest substring matching the final string of actions
-     *         the agent has taken and the length of the matched string
+     * taken and the length of the matched string.  The match is kept up to
+     * date by lmsIndex as episodes are added (@see SuffixAutomatonIndex) so
+     * this doesn't have to search the memory.  If there are several equally
+     * long matches, the most recent one is used.
+     *
+     * @return The index after the end of the longest substring matching the
+     *         final string of actions the agent has taken and the length of
+     *         the matched string
      */
     protected int[] maxMatchedString() {
-        int lastGoalIndex = findLastGoal(episodicMemory.size());
-        int[] scoreInfo = {0,0};//var to be returned
+        int lastGoalIndex = lmsIndex.getLastGoal();
+        scoreInfo[MATCHED_INDEX] = 0;//var to be returned (reused)
+        scoreInfo[MATCHED_LENGTH] = 0;
 
         if (lastGoalIndex == -1) {
             return scoreInfo;//since init to 0's the ending score will be poor
@@ -311,19 +320,11 @@ public class StateMachineAgent {
             return scoreInfo;//again, both are 0's for bad outcome
         }
 
-        //Find the longest matching subsequence (LMS)
-        int maxStringIndex = -1;
-        int maxStringLength = 0;
-        int currStringLength;
-        for (int i = lastGoalIndex-1; i >= 0; i--) {
-            currStringLength = matchedMemoryStringLength(i);
-            if (currStringLength > maxStringLength) {
-                maxStringLength = currStringLength;
-                maxStringIndex = i+1;
-            }
-        }//for
+        //The longest matching subsequence (LMS)
+        int maxStringLength = lmsIndex.getMatchLength();
+        int maxStringIndex = lmsIndex.getMatchEnd() + 1;
 
-        if (maxStringIndex < 0) {
+        if (maxStringLength == 0) {
             return scoreInfo;//bad score
         }
 
@@ -339,14 +340,14 @@ public class StateMachineAgent {
      *
      * Figures out the lms score and sets it using passed info from maxMatchedString
      *
-     * @return pathToAttempt the string to exec if lms is chosen
+     * @return pathToAttempt the path to exec if lms is chosen
      */
-    private String determineLmsScore() {
+    private Path determineLmsScore() {
         int[] matchedStringInfo = maxMatchedString();
-        String pathToAttempt = stepsToGoal(matchedStringInfo[MATCHED_INDEX]);
-        //calc score lengthMatched/numStepsToGoal
+        Path pathToAttempt = stepsToGoal(matchedStringInfo[MATCHED_INDEX], lmsPath);
+        //calc score lengthMatched/numStepsToGoal (nothing matched scores 0)
         double lengthMatched = matchedStringInfo[MATCHED_LENGTH];
-        double numStepsToGoal = pathToAttempt.length();
+        double numStepsToGoal = Math.max(pathToAttempt.size(), 1);
 
         lmsScore = (lengthMatched / numStepsToGoal) * LMS_CONSTANT;
         return pathToAttempt;
@@ -357,20 +358,29 @@ public class StateMachineAgent {
      *
      * takes an index and finds the path to reach the next goal
      *
-     * @return steps the string to exec to "reach" goal
+     * @return steps the path to exec to "reach" goal
+     */
+    protected Path stepsToGoal(int idx) {
+        return stepsToGoal(idx, new Path());
+    }
+
+    /**
+     * like stepsToGoal(int) but reuses a given path.  The path becomes a
+     * view of the cmds in memory so nothing is copied.
+     *
+     * @return steps the given path
      */
-    protected String stepsToGoal(int idx) {
-        //loop to next goal appending all chars
-        String steps = "";
+    protected Path stepsToGoal(int idx, Path steps) {
+        steps.clear();
         if (idx ==0)//no mem to evaluate
-            return " ";
-        for (int i=idx; i<episodicMemory.size(); i++) {
-            steps += episodicMemory.get(i).command;
-            //break if at goal
-            if (episodicMemory.get(i).sensorValue == GOAL){
-                break;
-            }
+            return steps;
+
+        //all cmds up to and including the next goal (or the end of memory)
+        int end = goalIndex.nextAtOrAfter(idx);
+        if (end == -1) {
+            end = episodicMemory.size() - 1;
         }
+        steps.setView(episodicMemory, idx, Math.max(end - idx + 1, 0));
         return steps;
     }
 
@@ -392,12 +402,11 @@ public class StateMachineAgent {
             //We want to compare the command from the prev episode and the
             //sensors from the "right now" episode to the sequence at the
             //index indicated by 'i'
-            char currCmd = episodicMemory.get(indexOfMatchingAction).command;
-            int currSensors = episodicMemory.get(indexOfMatchingAction).sensorValue;
-            char prevCmd = episodicMemory.get(i).command;
-            int prevSensors = episodicMemory.get(i).sensorValue;
+            //(the codes are equal when both the cmds and the sensors are)
+            int currEpisode = episodicMemory.code(indexOfMatchingAction);
+            int prevEpisode = episodicMemory.code(i);
 
-            match = ( (currCmd == prevCmd) && (currSensors == prevSensors) );
+            match = (currEpisode == prevEpisode);
 
             if (match) {
                 length++;
@@ -415,17 +424,14 @@ public class StateMachineAgent {
     /**
      * findLastGoal
      *
-     * Searches backwards through the list of move-result pairs from the given index
+     * Finds the last goal before the given index (not counting the first
+     * episode) using goalIndex
      * @param toStart The index from which to start the backwards search
      * @return The index of the previous goal
      */
     protected int findLastGoal(int toStart) {
-        for (int i = toStart - 1; i > 0; i --) {
-            if (episodicMemory.get(i).sensorValue == GOAL) {
-                return i;
-            }
-        }
-        return -1;
+        int lastGoal = goalIndex.lastBefore(toStart);
+        return (lastGoal > 0) ? lastGoal : -1;
     }
 
     /**
@@ -444,46 +450,76 @@ public class StateMachineAgent {
      * goal prematurely it will not execute anymore cmd's and return false
 	 *
 	 * @param pathToTry
-	 * 		An ArrayList of Characters representing the path to try
+	 * 		The actions of the path to try
 	 * 
 	 * @return
 	 * 		A boolean which is true if the path was reached the goal and
 	 * 		false if it did not
 	 */
 	public boolean tryPath(Path pathToTry) {
-		boolean[] sensors;
-		// Enter each character in the path
-		for (int i = 0; i < pathToTry.size(); i++) {
-			sensors = env.tick(pathToTry.get(i));
-			int encodedSensorResult = encodeSensors(sensors);
-			episodicMemory.add(new Episode(pathToTry.get(i), encodedSensorResult));
-
-            if (sensors[IS_GOAL]){
-                currentSuccesses++;
-            }
+		int size = pathToTry.size();
+		if (pathToTry.getMemory() != episodicMemory || !episodicMemory.hasRoomFor(size)) {
+			//not a view of our memory (or it might lose the view's episodes
+			//on the way) so use the path's own copy of the steps
+			return tryPath(pathToTry.actions(), size);
+		}
 
-			if (sensors[IS_GOAL] && i == pathToTry.size()-1) { //if at goal and last cmd return true
-				return true;
-			}
+		// Replay the remembered cmds straight out of memory
+		int offset = pathToTry.getOffset();
+		int executed = 0;
+		int sensor = NO_TRANSITION;
+		while (executed < size && sensor != GOAL) {
+			int move = episodicMemory.command(offset + executed);
+			sensor = env.tickEncoded(move);
+			episodicMemory.add(move, sensor);
+			executed++;
 		}
-		// If we make it through the entire loop, the path was unsuccessful
-		return false;
+		goalIndex.update();
+
+		return finishPath(executed, sensor, size);
+	}
+
+	/**
+	 * like tryPath(Path) but the moves are the first few of an array.  This
+	 * doesn't allocate anything (once the sensor buffer is big enough).
+	 *
+	 * @param moves  the actions of the path to try
+	 * @param size   how many of them there are
+	 */
+	public boolean tryPath(int[] moves, int size) {
+		if (size > sensorBuffer.length) {
+			sensorBuffer = new int[Math.max(size, sensorBuffer.length * 2)];
+		}
+
+		// Enter the whole path at once (the env stops early at the goal)
+		int executed = env.tickPath(moves, size, sensorBuffer);
+		for (int i = 0; i < executed; i++) {
+			episodicMemory.add(moves[i], sensorBuffer[i]);
+		}
+		goalIndex.update();
+
+		return finishPath(executed, (executed > 0) ? sensorBuffer[executed - 1] : NO_TRANSITION, size);
 	}//tryPath
 
-    /**
-     * stringToPath
-     *
-     * Takes a string of chars and converts them into a path
-     *
-     * @param commands string to be converted
-     */
-    public Path stringToPath(String commands) {
-        ArrayList<Character> generatedPath = new ArrayList<Character>();
-        for (int i=0; i<commands.length(); i++) {
-            generatedPath.add(i, commands.charAt(i));
-        }
-        return new Path(generatedPath);
-    }//stringToPath
+	/**
+	 * counts a success if a path reached the goal
+	 *
+	 * @param executed    how many of the path's cmds were executed
+	 * @param lastSensor  what was sensed after the last of them
+	 * @param size        how many cmds the path has
+	 * @return true if the path reached the goal on its last cmd
+	 */
+	private boolean finishPath(int executed, int lastSensor, int size) {
+		if (executed > 0 && lastSensor == GOAL) {
+			currentSuccesses++;
+
+			//if at goal and last cmd return true
+			return executed == size;
+		}
+
+		// If we make it through the entire path, the path was unsuccessful
+		return false;
+	}//finishPath
 
 	/**
 	 * getMostRecentPath
@@ -494,11 +530,7 @@ public class StateMachineAgent {
 	 */
 	public Path getMostRecentPath() {
 		int lastGoal = findLastGoal(episodicMemory.size() - 2) + 1;
-		ArrayList<Character> pathChars = new ArrayList<Character>();
-		for (int i = lastGoal; i < episodicMemory.size(); i++) {
-			pathChars.add(episodicMemory.get(i).command);
-		}
-		return new Path(pathChars);
+		return new Path(episodicMemory, lastGoal, episodicMemory.size() - lastGoal);
 	}
 
     //TODO: Save this method for later use
@@ -509,22 +541,28 @@ public class StateMachineAgent {
 	 * This will be changed to a more intelligent scheme later on
 	 */
 	public void reset() {
-		char toCheck;
-		boolean[] sensors;
+		int toCheck;
 		int encodedSensorResult;
 
 		//Currently, the agent will just move randomly until it reaches the goal
 		//and magically resets itself
 		do {
 			toCheck = generateSemiRandomAction();
-			sensors = env.tick(toCheck);
-			encodedSensorResult = encodeSensors(sensors);
-			episodicMemory.add(new Episode(toCheck, encodedSensorResult));
+			encodedSensorResult = env.tickEncoded(toCheck);
+			episodicMemory.add(toCheck, encodedSensorResult);
 			/*if (episodicMemory.size() > 500000000) {
 				System.exit(0);
 			}*/
 
-		} while (!sensors[IS_GOAL]); // Keep going until we've found the goal
+		} while (encodedSensorResult != GOAL); // Keep going until we've found the goal
+		goalIndex.update();
+	}
+
+	/** @return a reused path of one semi random action */
+	private Path semiRandomPath() {
+		randomPath.clear();
+		randomPath.add(generateSemiRandomAction());
+		return randomPath;
 	}
 
 	/**
@@ -536,7 +574,7 @@ public class StateMachineAgent {
 	 * 
 	 * @return A random action for the Agent to take
 	 */
-	public char generateSemiRandomAction() {
+	public int generateSemiRandomAction() {
         //decide if a dup command is acceptable
         double chanceForDup = Math.random();
         boolean dupPermitted = false;
@@ -545,12 +583,11 @@ public class StateMachineAgent {
         }
 
         //keep generating random moves till it is different from last or dups are allowed
-        char possibleCmd;
-        Episode lastEpisode = episodicMemory.get(episodicMemory.size() - 1);
-        char lastCommand = lastEpisode.command;
+        int possibleCmd;
+        int lastCommand = episodicMemory.command(episodicMemory.size() - 1);
 
         do {
-            possibleCmd = alphabet[random.nextInt(alphabet.length)];
+            possibleCmd = random.nextInt(numActions);
             if (dupPermitted)//if they are allowed we don't care to check for dup
                 break;
         } while (possibleCmd == lastCommand); //same cmd, redo loop
@@ -581,41 +618,6 @@ public class StateMachineAgent {
         return encodedSensorResult;
     }
 
-	/**
-	 * Returns the index of the given character in the alphabet array
-	 * @param toCheck the character to find the index of
-	 * @return the index of toCheck
-	 */
-	protected int indexOfCharacter(char toCheck) {
-		for (int i = 0; i < alphabet.length; i++) {
-			if (alphabet[i] == toCheck) {
-				return i;
-			}
-		}
-
-		return -1;
-	}
-
-	/**
-	 * A helper method which determines a given letter's
-	 * location in the alphabet
-	 * 
-	 * @param letter
-	 * 		The letter who's index we wish to find
-	 * @return
-	 * 		The index of the given letter (or -1 if the letter was not found)
-	 */
-	protected int findAlphabetIndex(char letter) {
-		// Iterate the through the alphabet to find the index of letter
-		for(int i = 0; i < alphabet.length; i++){
-			if(alphabet[i] == letter)
-				return i;
-		}
-
-		// Error if letter is not found
-		return -1;
-	}
-
 	/**
 	 * recordLearningCurve
 	 * 
@@ -629,13 +631,11 @@ public class StateMachineAgent {
             csv.append(episodicMemory.size() + ",");
             csv.flush();
             int prevGoalPoint = 0; //which episode I last reached the goal at
-            for(int i = 0; i < episodicMemory.size(); ++i) {
-                Episode ep = episodicMemory.get(i);
-                if (ep.sensorValue == GOAL) {
-                    csv.append(i - prevGoalPoint + ",");
-                    csv.flush();
-                    prevGoalPoint = i;
-                }//if
+            for(int n = 0; n < goalIndex.size(); ++n) {
+                int i = goalIndex.get(n);
+                csv.append(i - prevGoalPoint + ",");
+                csv.flush();
+                prevGoalPoint = i;
             }//for
 
             csv.append("\n");
@@ -648,6 +648,38 @@ public class StateMachineAgent {
                 
 	}//recordLearningCurve
 
+	/**
+	 * useMachineCorpus
+     *
+     * makes the sweeps below run every combo on the same machines, drawn from
+     * a corpus file.  If the file does not exist it is created with
+     * NUM_MACHINES new random machines.
+     *
+     * @param filename  the corpus file
+	 */
+    public static void useMachineCorpus(String filename) throws IOException
+    {
+        if (!new File(filename).exists()) {
+            StateMachineCorpus.generate(filename, NUM_MACHINES);
+        }
+        machinePool = new StateMachineCorpus(filename).getPool(NUM_MACHINES);
+    }//useMachineCorpus
+
+	/**
+	 * newRunEnvironment
+     *
+     * @param run  which run of a sweep this is
+     * @return a fresh environment for the given run: a machine from the pool
+     *         if there is one, otherwise a new random machine
+	 */
+    protected static StateMachineEnvironment newRunEnvironment(int run)
+    {
+        if (machinePool == null) {
+            return new StateMachineEnvironment();
+        }
+        return new StateMachineEnvironment(machinePool[run % machinePool.length]);
+    }//newRunEnvironment
+
 	/**
 	 * tryGenLearningCurves
      *
@@ -657,9 +689,10 @@ public class StateMachineAgent {
     {
         try {
 
+            useMachineCorpus(MACHINE_CORPUS);
             FileWriter csv = new FileWriter(OUTPUT_FILE);
             for(int i = 0; i < NUM_MACHINES; ++i) {
-                StateMachineAgent gilligan = new StateMachineAgent();
+                StateMachineAgent gilligan = new StateMachineAgent(newRunEnvironment(i));
                 gilligan.exploreEnvironment();
                 gilligan.recordLearningCurve(csv);
             }
@@ -687,7 +720,7 @@ public class StateMachineAgent {
         double sum = 0;//total num successes
         for (int l = 0; l < NUM_MACHINES; l++) {//test with multiple FSMs
             
-            StateMachineAgent gilligan = new StateMachineAgent();
+            StateMachineAgent gilligan = new StateMachineAgent(newRunEnvironment(l));
             gilligan.RANDOM_SCORE = randWeight;
             gilligan.SUS_CONSTANT = susWeight;
             gilligan.LMS_CONSTANT = lmsWeight;
@@ -721,6 +754,7 @@ public class StateMachineAgent {
     public static void tryAllCombos()
     {
         try {
+            useMachineCorpus(MACHINE_CORPUS);
             FileWriter csv = new FileWriter(OUTPUT_FILE);
             csv.append("Random,SUS,LMS,Average Score\n");
 
@@ -756,6 +790,7 @@ public class StateMachineAgent {
     public static void tryRandomCombos(int numCombos)
     {
         try {
+            useMachineCorpus(MACHINE_CORPUS);
             FileWriter csv = new FileWriter(OUTPUT_FILE);
             csv.append("Random,SUS,LMS,Average Score\n");
 
@@ -784,19 +819,45 @@ public class StateMachineAgent {
      * @param numTimes  number of FSMs to use to calculate the average
 	 */
     public static int tryAvgWithShortPath(int numTimes)
+    {
+        return tryAvgWithShortPath(numTimes, StateMachine.BlindPathSolver.PARALLEL_ASTAR);
+    }//tryAvgWithShortPath
+
+	/**
+	 * tryAvgWithShortPath
+     *
+     * like tryAvgWithShortPath(int) but with a specific blind path algorithm
+     *
+     * @param numTimes  number of FSMs to use to calculate the average
+     * @param solver    algorithm used to find each FSM's path
+	 */
+    public static int tryAvgWithShortPath(int numTimes, StateMachine.BlindPathSolver solver)
     {
         int sumOfAvgSteps = 0;
         for(int i = 0; i < numTimes; ++i)
         {
-            StateMachineEnvironment env = new StateMachineEnvironment();
-            String path = env.shortestBlindPathToGoal();
-            sumOfAvgSteps += env.avgStepsToGoalWithPath(path);
+            StateMachine machine = new StateMachine();
+            int[] path = machine.blindPathToGoal(solver, SEARCH_THREADS);
+            sumOfAvgSteps += machine.avgStepsToGoalWithPath(path);
         }
 
         return sumOfAvgSteps / numTimes;
         
     }//tryAvgWithShortPath
 
+	/**
+	 * tryAvgWithGreedyPath
+     *
+     * like tryAvgWithShortPath but uses the fast greedy (not necessarily
+     * shortest) path so it also works on large FSMs
+     *
+     * @param numTimes  number of FSMs to use to calculate the average
+	 */
+    public static int tryAvgWithGreedyPath(int numTimes)
+    {
+        return tryAvgWithShortPath(numTimes, StateMachine.BlindPathSolver.GREEDY);
+    }//tryAvgWithGreedyPath
+
     
     
 	/**
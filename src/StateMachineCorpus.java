@@ -0,0 +1,208 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * class StateMachineCorpus
+ *
+ * A binary file containing many state machines of the same size so that
+ * experiments can be run on a fixed, reproducible set of machines without
+ * paying to generate them every time.
+ *
+ * File layout (all values are big-endian 32-bit ints):
+ *   header:   MAGIC, VERSION, numStates, alphabetSize, numMachines
+ *   offsets:  numMachines ints, the position (in ints) of each record
+ *   machines: numMachines records, each containing
+ *             the number of stored transitions (numEdges),
+ *             where each state's transitions begin (numStates + 1),
+ *             the action of each transition (numEdges),
+ *             the destination of each transition (numEdges),
+ *             the distance to goal table (numStates) and
+ *             the next action table (numStates)
+ *
+ * Only the transitions that change the state are stored (see StateMachine)
+ * so records have different sizes.  The offsets let the reader jump straight
+ * to any machine in the memory-mapped file.
+ */
+public class StateMachineCorpus {
+
+    public static final int MAGIC = 0x46534D43;  //"FSMC"
+    public static final int VERSION = 2;
+    private static final int HEADER_INTS = 5;
+
+    private final IntBuffer data;  //the whole file viewed as ints
+    private final int numStates;
+    private final int alphabetSize;
+    private final int numMachines;
+
+    /**
+     * opens (memory-maps) an existing corpus file
+     *
+     * @param filename  the corpus file
+     */
+    public StateMachineCorpus(String filename) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filename, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            data = buffer.asIntBuffer();
+        }
+        finally {
+            file.close();  //the mapping stays valid after the file is closed
+        }
+
+        if (data.limit() < HEADER_INTS || data.get(0) != MAGIC) {
+            throw new IOException(filename + " is not a state machine corpus");
+        }
+        int version = data.get(1);
+        if (version != VERSION) {
+            throw new IOException(filename + " has unsupported corpus version " + version);
+        }
+        numStates = data.get(2);
+        alphabetSize = data.get(3);
+        numMachines = data.get(4);
+
+        //the last record must end inside the file
+        long end = HEADER_INTS + (long)numMachines;  //the offsets
+        if (numMachines > 0 && data.limit() >= end) {
+            int last = data.get(HEADER_INTS + numMachines - 1);
+            end = (last < data.limit()) ? last + (long)recordInts(numStates, data.get(last))
+                                        : last + 1L;
+        }
+        if (data.limit() < end) {
+            throw new IOException(filename + " is truncated");
+        }
+    }
+
+    /** @return the number of ints in one machine's record */
+    private static int recordInts(int numStates, int numEdges) {
+        return 1 + (numStates + 1) + 2 * numEdges + 2 * numStates;
+    }
+
+    /** @return how many machines are in the corpus */
+    public int size() {
+        return numMachines;
+    }
+
+    public int getNumStates() {
+        return numStates;
+    }
+
+    public int getAlphabetSize() {
+        return alphabetSize;
+    }
+
+    /**
+     * loads one machine from the corpus
+     *
+     * @param index  which machine (0 to size() - 1)
+     * @return the machine
+     */
+    public StateMachine getMachine(int index) {
+        IntBuffer record = data.duplicate();  //so callers on other threads don't share a position
+        record.position(data.get(HEADER_INTS + index));
+
+        int numEdges = record.get();
+        int[] rowStart = new int[numStates + 1];
+        int[] actions = new int[numEdges];
+        int[] targets = new int[numEdges];
+        int[] distances = new int[numStates];
+        int[] nextActions = new int[numStates];
+        record.get(rowStart);
+        record.get(actions);
+        record.get(targets);
+        record.get(distances);
+        record.get(nextActions);
+
+        return new StateMachine(rowStart, actions, targets, alphabetSize, distances, nextActions);
+    }//getMachine
+
+    /**
+     * loads the first few machines of the corpus.  Each agent should be given
+     * its own new StateMachineEnvironment(pool[i]) so runs don't share the
+     * current state.
+     *
+     * @param count  how many machines to load (at most size())
+     */
+    public StateMachine[] getPool(int count) {
+        StateMachine[] pool = new StateMachine[Math.min(count, numMachines)];
+        for(int i = 0; i < pool.length; ++i) {
+            pool[i] = getMachine(i);
+        }
+        return pool;
+    }//getPool
+
+    /**
+     * writes a set of machines to a new corpus file.  All of the machines
+     * must have the same size.
+     *
+     * @param filename  the file to create
+     * @param machines  the machines to save
+     */
+    public static void write(String filename, StateMachine[] machines) throws IOException {
+        int numStates = machines[0].getNumStates();
+        int alphabetSize = machines[0].getNumActions();
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(numStates);
+            out.writeInt(alphabetSize);
+            out.writeInt(machines.length);
+
+            //each record starts right after the one before it
+            long offset = HEADER_INTS + machines.length;
+            for(StateMachine machine : machines) {
+                if (machine.getNumStates() != numStates
+                    || machine.getNumActions() != alphabetSize) {
+                    throw new IOException("all machines in a corpus must have the same size");
+                }
+                if (offset > Integer.MAX_VALUE) {
+                    throw new IOException("too many machines for one corpus file");
+                }
+                out.writeInt((int)offset);
+                offset += recordInts(numStates, machine.getEdgeActions().length);
+            }
+
+            for(StateMachine machine : machines) {
+                out.writeInt(machine.getEdgeActions().length);
+                writeInts(out, machine.getRowStart());
+                writeInts(out, machine.getEdgeActions());
+                writeInts(out, machine.getEdgeTargets());
+                writeInts(out, machine.getDistanceToGoal());
+                writeInts(out, machine.getNextAction());
+            }
+        }
+        finally {
+            out.close();
+        }
+    }//write
+
+    /**
+     * generates new random machines of the default size and writes them to a
+     * corpus file
+     *
+     * @param filename     the file to create
+     * @param numMachines  how many machines to generate
+     */
+    public static void generate(String filename, int numMachines) throws IOException {
+        StateMachine[] machines = new StateMachine[numMachines];
+        for(int i = 0; i < numMachines; ++i) {
+            machines[i] = new StateMachine();
+        }
+        write(filename, machines);
+    }//generate
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for(int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+}//class StateMachineCorpus
@@ -0,0 +1,283 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * class StateMachineExporter
+ *
+ * Writes a StateMachine out for inspection, either as a .dot file
+ * (Graphviz) or as a plain edge list.  Both visit each stored transition
+ * once and stream straight to the output so they also work on very large
+ * machines.
+ *
+ * Every action that isn't stored is a self-loop (see StateMachine).  Listing
+ * those takes O(numStates * numActions) so they can instead be collapsed:
+ * in a .dot file into one edge per state labeled "*" and in an edge list by
+ * leaving them out.
+ *
+ * The edge list starts with a "# states N actions A goal G" line followed
+ * by one "source action destination" line per transition.
+ */
+public class StateMachineExporter {
+
+    //size of the output buffer
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** label of a collapsed self-loop edge */
+    public static final String SELF_LOOP_LABEL = "*";
+
+    private StateMachineExporter() { }
+
+    /**
+     * writes a machine to a new .dot file
+     *
+     * @param machine            the machine to write
+     * @param filename           the file to create
+     * @param collapseSelfLoops  write one "*" edge per state for its self-loops
+     */
+    public static void writeDot(StateMachine machine, String filename, boolean collapseSelfLoops) throws IOException {
+        Writer out = openFile(filename);
+        try {
+            writeDot(machine, out, collapseSelfLoops);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * writes a machine to a new edge list file
+     *
+     * @param machine            the machine to write
+     * @param filename           the file to create
+     * @param collapseSelfLoops  leave the self-loops out
+     */
+    public static void writeEdgeList(StateMachine machine, String filename, boolean collapseSelfLoops) throws IOException {
+        Writer out = openFile(filename);
+        try {
+            writeEdgeList(machine, out, collapseSelfLoops);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private static Writer openFile(String filename) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), "UTF-8"), BUFFER_SIZE);
+    }
+
+    /**
+     * writes a machine as a .dot file (Graphviz).  The output is not
+     * flushed or closed.  Without collapsing this is the same as the
+     * original printStateMachineGraph: one edge per (source, destination)
+     * pair with all of its actions, the destinations in order.
+     *
+     * @param machine            the machine to write
+     * @param out                where to write it
+     * @param collapseSelfLoops  write one "*" edge per state for its self-loops
+     */
+    public static void writeDot(StateMachine machine, Writer out, boolean collapseSelfLoops) throws IOException {
+        int numStates = machine.getNumStates();
+        int numActions = machine.getNumActions();
+        int goalState = machine.getGoalState();
+        int[] rowStart = machine.getRowStart();
+        int[] edgeAction = machine.getEdgeActions();
+        int[] edgeTarget = machine.getEdgeTargets();
+
+        //groups a row's edges by destination: each destination's first edge
+        //(for the current row) and the next edge with the same destination
+        int[] stamp = new int[numStates];
+        Arrays.fill(stamp, -1);
+        int[] firstEdge = new int[numStates];
+        int[] lastEdge = new int[numStates];
+        int[] nextEdge = new int[edgeAction.length];
+        int[] dests = new int[16];
+        StringBuilder line = new StringBuilder();
+
+        out.write("digraph finite_state_machine {\n");
+        out.write("node [shape = doublecircle]; Goal;\n");
+        out.write("node [shape = circle];     \n");
+
+        //for each possible source state (skipping goal state)
+        for (int i = 0; i < numStates - 1; i++) {
+            int begin = rowStart[i];
+            int end = rowStart[i + 1];
+            boolean hasSelfLoops = (end - begin) < numActions;
+
+            //find the destinations and chain together the edges for each one
+            //(the edges are sorted by action so each chain is too)
+            int numDests = 0;
+            if (dests.length < end - begin + 1) dests = new int[end - begin + 1];
+            for (int e = begin; e < end; e++) {
+                int dest = edgeTarget[e];
+                nextEdge[e] = -1;
+                if (dest < 0) continue;  //no transition (hand coded machines only)
+                if (stamp[dest] != i) {
+                    stamp[dest] = i;
+                    firstEdge[dest] = e;
+                    dests[numDests++] = dest;
+                }
+                else {
+                    nextEdge[lastEdge[dest]] = e;
+                }
+                lastEdge[dest] = e;
+            }
+            if (hasSelfLoops && !collapseSelfLoops) dests[numDests++] = i;
+            Arrays.sort(dests, 0, numDests);
+
+            for (int d = 0; d < numDests; d++) {
+                int dest = dests[d];
+                line.setLength(0);
+                line.append("    S").append(i).append(" -> ");
+                if (dest == goalState) line.append("Goal");
+                else line.append('S').append(dest);
+                line.append(" [ label = \"");
+
+                if (dest == i) {
+                    appendMissingActions(line, edgeAction, begin, end, numActions);
+                }
+                else {
+                    for (int e = firstEdge[dest]; e != -1; e = nextEdge[e]) {
+                        if (e != firstEdge[dest]) line.append(',');
+                        line.append(StateMachine.actionName(edgeAction[e]));
+                    }
+                }
+                line.append("\" ];\n");
+                out.append(line);
+            }//for
+
+            if (hasSelfLoops && collapseSelfLoops) {
+                line.setLength(0);
+                line.append("    S").append(i).append(" -> S").append(i)
+                    .append(" [ label = \"").append(SELF_LOOP_LABEL).append("\" ];\n");
+                out.append(line);
+            }
+        }//for
+
+        out.write("}\n");
+    }//writeDot
+
+    /** appends every action that isn't in a (sorted) row of edges to a label */
+    private static void appendMissingActions(StringBuilder label, int[] edgeAction, int begin, int end, int numActions) {
+        boolean first = true;
+        int e = begin;
+        for (int action = 0; action < numActions; action++) {
+            if (e < end && edgeAction[e] == action) {
+                e++;
+                continue;
+            }
+            if (!first) label.append(',');
+            label.append(StateMachine.actionName(action));
+            first = false;
+        }
+    }
+
+    /**
+     * writes a machine as an edge list.  The output is not flushed or
+     * closed.
+     *
+     * @param machine            the machine to write
+     * @param out                where to write it
+     * @param collapseSelfLoops  leave the self-loops out
+     */
+    public static void writeEdgeList(StateMachine machine, Writer out, boolean collapseSelfLoops) throws IOException {
+        int numStates = machine.getNumStates();
+        int numActions = machine.getNumActions();
+        int[] rowStart = machine.getRowStart();
+        int[] edgeAction = machine.getEdgeActions();
+        int[] edgeTarget = machine.getEdgeTargets();
+        StringBuilder line = new StringBuilder();
+
+        line.append("# states ").append(numStates).append(" actions ").append(numActions)
+            .append(" goal ").append(machine.getGoalState()).append('\n');
+        out.append(line);
+
+        for (int i = 0; i < numStates; i++) {
+            int e = rowStart[i];
+            int end = rowStart[i + 1];
+            if (collapseSelfLoops) {
+                for (; e < end; e++) {
+                    appendEdge(out, line, i, edgeAction[e], edgeTarget[e]);
+                }
+                continue;
+            }
+
+            //every action in order, filling the gaps with self-loops
+            for (int action = 0; action < numActions; action++) {
+                if (e < end && edgeAction[e] == action) {
+                    appendEdge(out, line, i, action, edgeTarget[e]);
+                    e++;
+                }
+                else {
+                    appendEdge(out, line, i, action, i);
+                }
+            }
+        }//for
+    }//writeEdgeList
+
+    private static void appendEdge(Writer out, StringBuilder line, int src, int action, int dest) throws IOException {
+        line.setLength(0);
+        line.append(src).append(' ').append(action).append(' ').append(dest).append('\n');
+        out.append(line);
+    }
+
+    /**
+     * writes the whole transition table, one row per state, in the format
+     * of printStateMachine.  The output is not flushed or closed.
+     *
+     * @param machine  the machine to write
+     * @param out      where to write it
+     */
+    public static void writeTable(StateMachine machine, Writer out) throws IOException {
+        int numStates = machine.getNumStates();
+        int numActions = machine.getNumActions();
+        int[] rowStart = machine.getRowStart();
+        int[] edgeAction = machine.getEdgeActions();
+        int[] edgeTarget = machine.getEdgeTargets();
+        int[] row = new int[numActions];
+        StringBuilder line = new StringBuilder();
+
+        appendActionHeader(line, numActions);
+        out.append(line);
+
+        for (int i = 0; i < numStates; i++) {
+            //expand the row's edges into the dense row
+            Arrays.fill(row, i);
+            for (int e = rowStart[i]; e < rowStart[i + 1]; e++) {
+                row[edgeAction[e]] = edgeTarget[e];
+            }
+
+            line.setLength(0);
+            pad(line, String.valueOf(i), 3).append(": ");
+            for (int j = 0; j < numActions; j++) {
+                pad(line, String.valueOf(row[j]), 3);
+            }
+            line.append('\n');
+            out.append(line);
+        }
+
+        line.setLength(0);
+        appendActionHeader(line, numActions);
+        out.append(line);
+    }//writeTable
+
+    private static void appendActionHeader(StringBuilder line, int numActions) {
+        line.append("     ");
+        for (int i = 0; i < numActions; i++) {
+            pad(line, StateMachine.actionName(i), 3);
+        }
+        line.append('\n');
+    }
+
+    /** appends a value right-justified in a given width (like %3s) */
+    private static StringBuilder pad(StringBuilder line, String value, int width) {
+        for (int i = value.length(); i < width; i++) {
+            line.append(' ');
+        }
+        return line.append(value);
+    }
+
+}//class StateMachineExporter
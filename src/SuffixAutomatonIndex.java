@@ -0,0 +1,297 @@
+import java.util.Arrays;
+
+/**
+ * class SuffixAutomatonIndex
+ *
+ * An online suffix automaton over the episodes of an EpisodicMemory (each
+ * episode's code is one symbol) used to find the LMS: the longest sequence
+ * of episodes before the last goal that matches the end of the memory.
+ *
+ * Each state of the automaton records where its strings first occur
+ * (firstPos).  Transitions are found through an open-addressed hash table
+ * keyed on (state, symbol) so that big alphabets (many actions) don't slow
+ * the lookups down.  Alongside the automaton the index keeps the match itself:
+ * the state and length of the longest suffix of the memory that also occurs
+ * ending before the last goal.  When an episode is appended the match is
+ * extended the same way matching statistics are computed, and when a new
+ * goal moves the bound it is found again by following suffix links from the
+ * state of the whole memory.  So keeping it up to date takes amortized
+ * constant time per episode.
+ *
+ * When several earlier sequences are equally long the most recent one is
+ * picked (like the original backwards scan).  For that each state also
+ * records the last place its strings occur before the last goal (lastPos).
+ * It's brought up to date when a goal moves the bound by walking up the
+ * suffix links from each episode that became eligible, newest first,
+ * stopping at states an earlier walk already reached.  That's usually a
+ * few states per episode, but a long run of the same episode can make a
+ * walk as long as the run.
+ *
+ * CAVEAT: episodes must not be changed once they've been indexed.  If
+ * episodes are removed from the memory (it's cleared or bounded) the index
+ * is rebuilt from what's left.
+ */
+public class SuffixAutomatonIndex {
+
+    private static final int NONE = -1;
+
+    private final EpisodicMemory memory;
+    private int processed = 0;  //how many episodes have been added
+    private int epoch;          //the memory's epoch when they were
+
+    //the automaton's states (state 0 is the empty string)
+    private int[] len = new int[16];        //longest string in the state
+    private int[] link = new int[16];       //suffix link
+    private int[] firstPos = new int[16];   //end index of the first occurrence
+    private int[] lastPos = new int[16];    //end index of the last occurrence
+                                            //before lastGoal (NONE if none)
+    private int[] firstEdge = new int[16];  //first of the state's transitions
+    private int numStates = 0;
+    private int last;                        //the state of the whole memory
+
+    //the state of the whole memory up to each episode
+    private int[] prefixState = new int[16];
+
+    //the transitions, as a linked list per state (for copying them when a
+    //state is split) and a hash table from (state, symbol) to the transition
+    private int[] edgeOwner = new int[16];
+    private int[] edgeSymbol = new int[16];
+    private int[] edgeTarget = new int[16];
+    private int[] edgeNext = new int[16];
+    private int numEdges = 0;
+    private long[] tableKeys = new long[32];  //EMPTY where unused
+    private int[] tableEdges = new int[32];
+    private static final long EMPTY = -1;
+
+    //index of the last goal (not counting episode 0) or -1
+    private int lastGoal = -1;
+
+    //the longest suffix of the memory that ends no later than lastGoal - 1
+    private int matchState = 0;
+    private int matchLen = 0;
+
+    /**
+     * @param memory  the memory to index
+     */
+    public SuffixAutomatonIndex(EpisodicMemory memory) {
+        this.memory = memory;
+        reset();
+    }
+
+    /** forgets everything that has been indexed */
+    private void reset() {
+        numStates = 0;
+        numEdges = 0;
+        Arrays.fill(tableKeys, EMPTY);
+        last = newState(0, NONE);
+        link[last] = NONE;
+        processed = 0;
+        epoch = memory.getEpoch();
+        lastGoal = -1;
+        matchState = 0;
+        matchLen = 0;
+    }
+
+    /** indexes any episodes that have been added to the memory since the last call */
+    public void update() {
+        if (memory.getEpoch() != epoch) reset();
+
+        while (processed < memory.size()) {
+            int pos = processed++;
+            int symbol = memory.code(pos);
+            extend(symbol, pos);
+
+            if (lastGoal >= 0) advanceMatch(symbol);
+
+            if (pos > 0 && EpisodicMemory.sensorOf(symbol) == StateMachineAgent.GOAL) {
+                updateLastPos(Math.max(lastGoal, 0), pos - 1);
+                lastGoal = pos;
+                findMatch();
+            }
+        }
+    }//update
+
+    /** @return the index of the last goal (not counting episode 0) or -1 */
+    public int getLastGoal() {
+        update();
+        return lastGoal;
+    }
+
+    /**
+     * @return how many episodes at the end of the memory match a sequence
+     *         ending before the last goal (0 if none do)
+     */
+    public int getMatchLength() {
+        update();
+        return matchLen;
+    }
+
+    /** @return the index of the last episode of that matching sequence */
+    public int getMatchEnd() {
+        update();
+        return lastPos[matchState];
+    }
+
+    /** adds the next episode to the automaton */
+    private void extend(int symbol, int pos) {
+        int cur = newState(len[last] + 1, pos);
+        if (pos == prefixState.length) prefixState = Arrays.copyOf(prefixState, pos * 2);
+        prefixState[pos] = cur;
+        int p = last;
+        while (p != NONE && findEdge(p, symbol) == NONE) {
+            addEdge(p, symbol, cur);
+            p = link[p];
+        }
+
+        if (p == NONE) {
+            link[cur] = 0;
+        }
+        else {
+            int q = edgeTarget[findEdge(p, symbol)];
+            if (len[p] + 1 == len[q]) {
+                link[cur] = q;
+            }
+            else {
+                //split q so that cur's suffix link has the right length
+                int clone = newState(len[p] + 1, firstPos[q]);
+                lastPos[clone] = lastPos[q];  //cur is after the last goal
+                for (int e = firstEdge[q]; e != NONE; e = edgeNext[e]) {
+                    addEdge(clone, edgeSymbol[e], edgeTarget[e]);
+                }
+                link[clone] = link[q];
+                for (; p != NONE; p = link[p]) {
+                    int e = findEdge(p, symbol);
+                    if (edgeTarget[e] != q) break;
+                    edgeTarget[e] = clone;
+                }
+                link[q] = clone;
+                link[cur] = clone;
+
+                //the match may now belong to the clone
+                if (matchState == q && matchLen <= len[clone]) matchState = clone;
+            }
+        }
+
+        last = cur;
+    }//extend
+
+    /** extends the match by the episode that was just added */
+    private void advanceMatch(int symbol) {
+        int bound = lastGoal - 1;
+        while (true) {
+            int e = findEdge(matchState, symbol);
+            if (e != NONE && firstPos[edgeTarget[e]] <= bound) {
+                matchState = edgeTarget[e];
+                matchLen++;
+                return;
+            }
+            if (matchState == 0) {
+                matchLen = 0;
+                return;
+            }
+
+            //try a shorter suffix
+            matchState = link[matchState];
+            matchLen = len[matchState];
+        }
+    }//advanceMatch
+
+    /**
+     * records the episodes in [from, to] as occurrences before the last goal
+     * (in lastPos).  Newest first so a walk can stop at a state that already
+     * has a later one (and so do all the states above it).
+     */
+    private void updateLastPos(int from, int to) {
+        for (int pos = to; pos >= from; pos--) {
+            for (int v = prefixState[pos]; v != NONE && lastPos[v] < pos; v = link[v]) {
+                lastPos[v] = pos;
+            }
+        }
+    }
+
+    /** finds the match from scratch (after the last goal moved) */
+    private void findMatch() {
+        int bound = lastGoal - 1;
+        int v = last;
+        while (v != 0 && firstPos[v] > bound) {
+            v = link[v];
+        }
+        matchState = v;
+        matchLen = len[v];
+    }
+
+    /** @return the transition from a state on a symbol or NONE */
+    private int findEdge(int state, int symbol) {
+        long key = edgeKey(state, symbol);
+        int mask = tableKeys.length - 1;
+        for (int slot = hash(key) & mask; tableKeys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (tableKeys[slot] == key) return tableEdges[slot];
+        }
+        return NONE;
+    }
+
+    private static long edgeKey(int state, int symbol) {
+        return ((long)state << 32) | (symbol & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h >>> 32) ^ (int)h;
+    }
+
+    /** puts a transition in the hash table (which must have room) */
+    private void putEdge(long key, int edge) {
+        int mask = tableKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (tableKeys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        tableKeys[slot] = key;
+        tableEdges[slot] = edge;
+    }
+
+    private void addEdge(int state, int symbol, int target) {
+        if (numEdges == edgeSymbol.length) {
+            int size = numEdges * 2;
+            edgeOwner = Arrays.copyOf(edgeOwner, size);
+            edgeSymbol = Arrays.copyOf(edgeSymbol, size);
+            edgeTarget = Arrays.copyOf(edgeTarget, size);
+            edgeNext = Arrays.copyOf(edgeNext, size);
+        }
+        edgeOwner[numEdges] = state;
+        edgeSymbol[numEdges] = symbol;
+        edgeTarget[numEdges] = target;
+        edgeNext[numEdges] = firstEdge[state];
+        firstEdge[state] = numEdges;
+
+        //keep the table at most half full
+        if (2 * (numEdges + 1) > tableKeys.length) {
+            tableKeys = new long[tableKeys.length * 2];
+            tableEdges = new int[tableKeys.length];
+            Arrays.fill(tableKeys, EMPTY);
+            for (int e = 0; e < numEdges; e++) {
+                putEdge(edgeKey(edgeOwner[e], edgeSymbol[e]), e);
+            }
+        }
+        putEdge(edgeKey(state, symbol), numEdges);
+        numEdges++;
+    }
+
+    private int newState(int length, int pos) {
+        if (numStates == len.length) {
+            int size = numStates * 2;
+            len = Arrays.copyOf(len, size);
+            link = Arrays.copyOf(link, size);
+            firstPos = Arrays.copyOf(firstPos, size);
+            lastPos = Arrays.copyOf(lastPos, size);
+            firstEdge = Arrays.copyOf(firstEdge, size);
+        }
+        len[numStates] = length;
+        link[numStates] = NONE;
+        firstPos[numStates] = pos;
+        lastPos[numStates] = NONE;
+        firstEdge[numStates] = NONE;
+        return numStates++;
+    }
+
+}//class SuffixAutomatonIndex